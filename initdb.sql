@@ -20,6 +20,12 @@ CREATE TYPE public."usertype" AS ENUM (
 	'manager',
 	'user');
 
+-- Sequences are allocated in blocks of 50 (pooled-lo), must match the entity generator increment
+
+CREATE SEQUENCE public.tbl_user_seq INCREMENT BY 50 START WITH 1;
+
+CREATE SEQUENCE public.tbl_address_seq INCREMENT BY 50 START WITH 1;
+
 -- public.tbl_user definition
 
 -- Drop table
@@ -28,7 +34,7 @@ CREATE TYPE public."usertype" AS ENUM (
 
 CREATE TABLE public.tbl_user (
                                  created_at timestamp(6) NULL,
-                                 id bigserial NOT NULL,
+                                 id int8 NOT NULL,
                                  updated_at timestamp(6) NULL,
                                  date_of_birth varchar(255) NULL,
                                  email varchar(255) NULL,
@@ -40,6 +46,8 @@ CREATE TABLE public.tbl_user (
                                  "gender" public."gender" NULL,
                                  status public."userstatus" NULL,
                                  "type" public."usertype" NULL,
+                                 search_vector tsvector NULL,
+                                 "version" int8 DEFAULT 0 NOT NULL,
                                  CONSTRAINT tbl_user_pkey PRIMARY KEY (id)
 );
 
@@ -52,7 +60,7 @@ CREATE TABLE public.tbl_user (
 CREATE TABLE public.tbl_address (
                                     address_type int4 NULL,
                                     created_at timestamp(6) NULL,
-                                    id bigserial NOT NULL,
+                                    id int8 NOT NULL,
                                     updated_at timestamp(6) NULL,
                                     user_id int8 NULL,
                                     apartment_number varchar(255) NULL,
@@ -68,4 +76,34 @@ CREATE TABLE public.tbl_address (
 
 -- public.tbl_address foreign keys
 
-ALTER TABLE public.tbl_address ADD CONSTRAINT fklo13i087wmqhi0h7ffjxoljrb FOREIGN KEY (user_id) REFERENCES public.tbl_user(id);
\ No newline at end of file
+ALTER TABLE public.tbl_address ADD CONSTRAINT fklo13i087wmqhi0h7ffjxoljrb FOREIGN KEY (user_id) REFERENCES public.tbl_user(id);
+
+-- Deleting users looks up their addresses, once by the bulk delete and once per row by the foreign key check
+CREATE INDEX tbl_address_user_id_idx ON public.tbl_address USING btree (user_id);
+
+-- Keyset paging seeks on (sort key, id), one index per sortable column
+
+CREATE INDEX tbl_user_first_name_id_idx ON public.tbl_user USING btree (first_name, id);
+CREATE INDEX tbl_user_last_name_id_idx ON public.tbl_user USING btree (last_name, id);
+CREATE INDEX tbl_user_email_id_idx ON public.tbl_user USING btree (email, id);
+CREATE INDEX tbl_user_created_at_id_idx ON public.tbl_user USING btree (created_at, id);
+
+-- Pattern search, see TextSearchPlanner. Names and email are matched case-insensitively on lower(column).
+-- Trigram GIN indexes serve contains and suffix patterns, text_pattern_ops b-trees serve prefix patterns
+-- whatever the collation of the database
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX tbl_user_first_name_trgm_idx ON public.tbl_user USING gin (lower(first_name) gin_trgm_ops);
+CREATE INDEX tbl_user_last_name_trgm_idx ON public.tbl_user USING gin (lower(last_name) gin_trgm_ops);
+CREATE INDEX tbl_user_email_trgm_idx ON public.tbl_user USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX tbl_user_phone_trgm_idx ON public.tbl_user USING gin (phone gin_trgm_ops);
+
+CREATE INDEX tbl_user_first_name_pattern_idx ON public.tbl_user USING btree (lower(first_name) text_pattern_ops);
+CREATE INDEX tbl_user_last_name_pattern_idx ON public.tbl_user USING btree (lower(last_name) text_pattern_ops);
+CREATE INDEX tbl_user_email_pattern_idx ON public.tbl_user USING btree (lower(email) text_pattern_ops);
+CREATE INDEX tbl_user_phone_pattern_idx ON public.tbl_user USING btree (phone text_pattern_ops);
+
+-- Full-text search, search_vector is maintained by the application, see UserTextSearchRepository
+
+CREATE INDEX tbl_user_search_vector_idx ON public.tbl_user USING gin (search_vector);
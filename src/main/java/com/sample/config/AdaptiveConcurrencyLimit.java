@@ -0,0 +1,117 @@
+package com.sample.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit of one group of endpoints that follows the observed latency, gradient style: the limit shrinks
+ * when the latest response time exceeds the long-term average by more than the tolerance and grows by about its square
+ * root while it does not. It only moves while at least half of it is in use, latency of a lightly loaded group says
+ * nothing about its limit. Requests over the limit are rejected at once, there is no queue
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_RTT_FACTOR = 2.0 / (600 + 1);
+
+    @Getter
+    private final String group;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimit(String group, int initialLimit, int minLimit, int maxLimit) {
+        this.group = group;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Take a slot unless the limit is reached
+     *
+     * @return false when the request has to be shed
+     */
+    public boolean tryAcquire() {
+        if (inFlight.incrementAndGet() > getLimit()) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Give the slot back
+     *
+     * @param rttNanos response time of the request
+     * @param sample   whether the response time tells about the load, false for failed requests
+     */
+    public void release(long rttNanos, boolean sample) {
+        int current = inFlight.getAndDecrement();
+        if (sample && rttNanos > 0) {
+            update(rttNanos, current);
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Export the limit, the requests in flight and the rejected ones by group as user_concurrency_limit,
+     * user_concurrency_in_flight and user_concurrency_rejected_total
+     */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.concurrency.limit", this, AdaptiveConcurrencyLimit::getLimit)
+                .tag("group", group)
+                .description("Concurrent requests allowed")
+                .register(registry);
+        Gauge.builder("user.concurrency.in.flight", this, AdaptiveConcurrencyLimit::getInFlight)
+                .tag("group", group)
+                .description("Requests being served")
+                .register(registry);
+        FunctionCounter.builder("user.concurrency.rejected", rejected, LongAdder::sum)
+                .tag("group", group)
+                .description("Requests shed with 503")
+                .register(registry);
+    }
+
+    private void update(long rtt, int inFlightAtCompletion) {
+        lock.lock();
+        try {
+            longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) * LONG_RTT_FACTOR;
+            // after a slow period the average lags behind, let it come down faster than it went up
+            if (longRtt / rtt > 2) {
+                longRtt *= 0.95;
+            }
+            if (inFlightAtCompletion < limit / 2) {
+                return;
+            }
+
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+            double next = limit * gradient + Math.sqrt(limit);
+            next = limit * (1 - SMOOTHING) + next * SMOOTHING;
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.sample.config;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@RequiredArgsConstructor
 public class AppConfig implements WebMvcConfigurer {
 
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+    private final ObjectProvider<ReadYourWritesInterceptor> readYourWritesInterceptor;
+    private final ObjectProvider<ShardedStorageInterceptor> shardedStorageInterceptor;
+
     @Value("${cors.allow.origins}")
     private String allowOrigins;
 
+    @Value("${user.concurrency-limit.enabled:true}")
+    private boolean concurrencyLimitEnabled;
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -21,4 +32,13 @@ public class AppConfig implements WebMvcConfigurer {
                 .allowCredentials(false)
                 .maxAge(3600);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (concurrencyLimitEnabled) {
+            registry.addInterceptor(concurrencyLimitInterceptor).addPathPatterns("/user/**");
+        }
+        readYourWritesInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor).addPathPatterns("/user/**"));
+        shardedStorageInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor).addPathPatterns("/user/**"));
+    }
 }
@@ -0,0 +1,111 @@
+package com.sample.config;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.sample.dto.response.UserDetailResponse;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static com.sample.util.Constant.CacheRegion.*;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Size and TTL bounded user detail cache, hit/miss/eviction/load metrics are exported as cache_* with cache="users".
+     * Values are futures so that a miss is loaded by the caller outside of any cache lock, see {@link com.sample.service.UserCache}
+     */
+    @Bean
+    public AsyncCache<Long, UserDetailResponse> userDetailCache(MeterRegistry meterRegistry,
+                                                           @Value("${user.cache.maximum-size:10000}") long maximumSize,
+                                                           @Value("${user.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        AsyncCache<Long, UserDetailResponse> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users");
+
+        // the binder exports loads of a loading cache only, UserCache loads through AsyncCache.get
+        Cache<Long, UserDetailResponse> stats = cache.synchronous();
+        FunctionCounter.builder("cache.load", stats, c -> c.stats().loadSuccessCount())
+                .tags("cache", "users", "result", "success")
+                .description("The number of times cache lookup methods have successfully loaded a new value")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.load", stats, c -> c.stats().loadFailureCount())
+                .tags("cache", "users", "result", "failure")
+                .description("The number of times cache lookup methods failed to load a new value")
+                .register(meterRegistry);
+        TimeGauge.builder("cache.load.duration", stats, TimeUnit.NANOSECONDS, c -> c.stats().totalLoadTime())
+                .tag("cache", "users")
+                .description("The time the cache has spent loading new values")
+                .register(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * In-process JCache manager holding the regions of the Hibernate second-level cache, every region is created
+     * here with its own size limit. Its own URI keeps the regions of each application context apart
+     */
+    @Bean
+    public CacheManager secondLevelCacheManager(MeterRegistry meterRegistry,
+                                                @Value("${user.l2-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                                                @Value("${user.l2-cache.user.maximum-size:10000}") long userSize,
+                                                @Value("${user.l2-cache.address.maximum-size:50000}") long addressSize,
+                                                @Value("${user.l2-cache.user-addresses.maximum-size:10000}") long userAddressesSize,
+                                                @Value("${user.l2-cache.user-search.maximum-size:1000}") long userSearchSize,
+                                                @Value("${user.l2-cache.query-results.maximum-size:1000}") long queryResultsSize) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("l2-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        createRegion(cacheManager, meterRegistry, USER, userSize, expireAfterWrite);
+        createRegion(cacheManager, meterRegistry, ADDRESS, addressSize, expireAfterWrite);
+        createRegion(cacheManager, meterRegistry, USER_ADDRESSES, userAddressesSize, expireAfterWrite);
+        createRegion(cacheManager, meterRegistry, USER_SEARCH, userSearchSize, expireAfterWrite);
+        createRegion(cacheManager, meterRegistry, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queryResultsSize, expireAfterWrite);
+        // must outlive every cached query result, otherwise stale results are served, so no expiry
+        createRegion(cacheManager, meterRegistry, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 10_000, null);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+
+    /**
+     * Create a bounded region and export its estimated size, hits/misses/puts come from the Hibernate statistics
+     */
+    private static void createRegion(CacheManager cacheManager, MeterRegistry meterRegistry, String name, long maximumSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maximumSize));
+        if (expireAfterWrite != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        Cache<?, ?> region = cacheManager.createCache(name, configuration).unwrap(Cache.class);
+
+        Gauge.builder("hibernate.second.level.cache.size", region, Cache::estimatedSize)
+                .tag("region", name)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,100 @@
+package com.sample.config;
+
+import com.sample.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulkheads of the user endpoints: searches that can hold a connection for seconds, bulk operations and the cheap
+ * CRUD calls each get their own {@link AdaptiveConcurrencyLimit}, so a burst of one group cannot starve the others.
+ * A request over the limit of its group gets 503 with Retry-After instead of waiting
+ */
+@Component
+@Slf4j(topic = "CONCURRENCY-LIMIT")
+public class ConcurrencyLimitInterceptor implements HandlerInterceptor {
+
+    public static final String SEARCH = "search";
+    public static final String BULK = "bulk";
+    public static final String CRUD = "crud";
+
+    // method and path, GET /user/batch is a cheap lookup by ids while PATCH /user/batch updates many users
+    private static final List<String> SEARCH_ENDPOINTS = List.of("GET /user/search-with-criteria", "GET /user/search-with-specifications",
+            "GET /user/search-text", "GET /user/list-sorted-paged-by-customize-query");
+    private static final List<String> BULK_ENDPOINTS = List.of("POST /user/import", "GET /user/export", "PATCH /user/batch",
+            "POST /user/bulk-delete", "PATCH /user/change-status");
+
+    private static final String LIMIT = ConcurrencyLimitInterceptor.class.getName() + ".limit";
+    private static final String START = ConcurrencyLimitInterceptor.class.getName() + ".start";
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private final Map<String, AdaptiveConcurrencyLimit> limits = new LinkedHashMap<>();
+
+    @Value("${user.concurrency-limit.retry-after:1s}")
+    private Duration retryAfter;
+
+    public ConcurrencyLimitInterceptor(Environment environment, MeterRegistry meterRegistry) {
+        limits.put(SEARCH, limit(environment, SEARCH, 4, 1, 6));
+        limits.put(BULK, limit(environment, BULK, 2, 1, 2));
+        limits.put(CRUD, limit(environment, CRUD, 20, 5, 200));
+        limits.values().forEach(limit -> limit.bindTo(meterRegistry));
+    }
+
+    public AdaptiveConcurrencyLimit getLimit(String group) {
+        return limits.get(group);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        AdaptiveConcurrencyLimit limit = limits.get(group(request.getMethod() + " " + urlPathHelper.getLookupPathForRequest(request)));
+        if (!limit.tryAcquire()) {
+            log.debug("Shedding {} request {}, limit {}", limit.getGroup(), request.getRequestURI(), limit.getLimit());
+            throw new ServiceUnavailableException("Too many concurrent " + limit.getGroup() + " requests, please try again later",
+                    Math.max(1, retryAfter.toSeconds()));
+        }
+        request.setAttribute(LIMIT, limit);
+        request.setAttribute(START, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(LIMIT) instanceof AdaptiveConcurrencyLimit limit) {
+            request.removeAttribute(LIMIT);
+            long rtt = System.nanoTime() - (long) request.getAttribute(START);
+            limit.release(rtt, ex == null && response.getStatus() < 500);
+        }
+    }
+
+    private String group(String endpoint) {
+        if (SEARCH_ENDPOINTS.stream().anyMatch(pattern -> pathMatcher.match(pattern, endpoint))) {
+            return SEARCH;
+        }
+        if (BULK_ENDPOINTS.stream().anyMatch(pattern -> pathMatcher.match(pattern, endpoint))) {
+            return BULK;
+        }
+        return CRUD;
+    }
+
+    private static AdaptiveConcurrencyLimit limit(Environment environment, String group, int initialLimit, int minLimit, int maxLimit) {
+        String prefix = "user.concurrency-limit." + group + ".";
+        return new AdaptiveConcurrencyLimit(group,
+                environment.getProperty(prefix + "initial-limit", Integer.class, initialLimit),
+                environment.getProperty(prefix + "min-limit", Integer.class, minLimit),
+                environment.getProperty(prefix + "max-limit", Integer.class, maxLimit));
+    }
+}
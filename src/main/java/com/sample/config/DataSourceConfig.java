@@ -0,0 +1,54 @@
+package com.sample.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Hikari applies its default pool size only when the pool starts
+     */
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    /**
+     * Put a {@link LimitedDataSource} in front of the connection pool when user.connection-limiter.enabled, which
+     * follows spring.threads.virtual.enabled by default. A max-concurrent of 0 allows as many connections as the pool
+     */
+    @Bean
+    public static BeanPostProcessor connectionLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof HikariDataSource pool)
+                        || !environment.getProperty("user.connection-limiter.enabled", Boolean.class, false)) {
+                    return bean;
+                }
+                int maxConcurrent = environment.getProperty("user.connection-limiter.max-concurrent", Integer.class, 0);
+                if (maxConcurrent < 1) {
+                    maxConcurrent = pool.getMaximumPoolSize() > 0 ? pool.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+                }
+                return new LimitedDataSource(pool, pool.getPoolName() != null ? pool.getPoolName() : beanName, maxConcurrent,
+                        environment.getProperty("user.connection-limiter.max-waiting", Integer.class, 1000),
+                        environment.getProperty("user.connection-limiter.acquire-timeout", Duration.class, Duration.ofSeconds(5)));
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder connectionLimiterMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> dataSource.stream().forEach(source -> {
+            if (source instanceof LimitedDataSource limited) {
+                limited.bindTo(registry);
+            }
+        });
+    }
+}
@@ -0,0 +1,149 @@
+package com.sample.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the connections checked out of the pool at once and the callers queued for one. Request threads bound the
+ * database load while they come from the Tomcat pool, virtual threads do not, so a spike of slow queries would park
+ * every request of the spike in the connection pool. Queued callers wait in arrival order, a caller finding the queue
+ * full fails at once and a queued one fails after the acquire timeout, both with {@link SQLTransientConnectionException}
+ * like a pool timeout. A permit is given back when the connection is closed
+ */
+@Slf4j(topic = "CONNECTION-LIMITER")
+public class LimitedDataSource extends DelegatingDataSource {
+
+    private final String pool;
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final Duration acquireTimeout;
+
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder queueFull = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public LimitedDataSource(DataSource targetDataSource, String pool, int maxConcurrent, int maxWaiting, Duration acquireTimeout) {
+        super(targetDataSource);
+        this.pool = pool;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.acquireTimeout = acquireTimeout;
+        this.permits = new Semaphore(maxConcurrent, true);
+        log.info("Connection limiter on {}: {} connections, {} waiting, acquire timeout {}", pool, maxConcurrent, maxWaiting, acquireTimeout);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return limited(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Export the connections in use and the callers waiting as user_connection_limiter_active and _waiting, the
+     * callers turned away as user_connection_limiter_rejected_total by reason, all tagged with the pool
+     */
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("user.connection.limiter.active", permits, semaphore -> maxConcurrent - semaphore.availablePermits())
+                .tag("pool", pool)
+                .description("Connections checked out through the limiter")
+                .register(registry);
+        Gauge.builder("user.connection.limiter.waiting", waiting, AtomicInteger::get)
+                .tag("pool", pool)
+                .description("Callers waiting for a connection")
+                .register(registry);
+        FunctionCounter.builder("user.connection.limiter.rejected", queueFull, LongAdder::sum)
+                .tag("pool", pool)
+                .tag("reason", "queue-full")
+                .register(registry);
+        FunctionCounter.builder("user.connection.limiter.rejected", timedOut, LongAdder::sum)
+                .tag("pool", pool)
+                .tag("reason", "timeout")
+                .register(registry);
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            queueFull.increment();
+            throw new SQLTransientConnectionException("Too many requests waiting for a database connection");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                timedOut.increment();
+                throw new SQLTransientConnectionException("Database connection not available, request timed out after " + acquireTimeout.toMillis() + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Wrap a pooled connection so that closing it once gives the permit back
+     */
+    private Connection limited(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{ConnectionProxy.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "getTargetConnection" -> connection;
+                    case "close" -> {
+                        try {
+                            connection.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                permits.release();
+                            }
+                        }
+                        yield null;
+                    }
+                    default -> {
+                        try {
+                            yield method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+}
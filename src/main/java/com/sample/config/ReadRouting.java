@@ -0,0 +1,50 @@
+package com.sample.config;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins reads to the primary database when a replica is configured: for the request of a client that wrote recently,
+ * see {@link ReadYourWritesInterceptor}, and for reads whose result outlives the replica lag, like the values of a
+ * cache. Without a replica every read goes to the primary anyway
+ */
+public final class ReadRouting {
+
+    static final String PINNED = ReadRouting.class.getName() + ".pinned";
+
+    private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * Run reads on the primary database
+     *
+     * @param reads the reads
+     * @return result of the reads
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        if (Boolean.TRUE.equals(ON_PRIMARY.get())) {
+            return reads.get();
+        }
+        ON_PRIMARY.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            ON_PRIMARY.remove();
+        }
+    }
+
+    /**
+     * @return whether the reads of the current thread have to go to the primary database
+     */
+    public static boolean isPinned() {
+        if (Boolean.TRUE.equals(ON_PRIMARY.get())) {
+            return true;
+        }
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request != null && Boolean.TRUE.equals(request.getAttribute(PINNED, RequestAttributes.SCOPE_REQUEST));
+    }
+}
@@ -0,0 +1,55 @@
+package com.sample.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.WebUtils;
+
+import java.time.Duration;
+
+/**
+ * Read-your-writes for clients of a replicated database: a request that may write marks its client with a cookie
+ * for the sticky window, and requests of a marked client read from the primary until the window is over, by which
+ * time the replica is expected to have the write
+ */
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    static final String COOKIE = "primary-until";
+
+    private final Duration stickyWindow;
+
+    public ReadYourWritesInterceptor(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        long now = System.currentTimeMillis();
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS) {
+            request.setAttribute(ReadRouting.PINNED, Boolean.TRUE);
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(now + stickyWindow.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, stickyWindow.toSeconds()));
+            response.addCookie(cookie);
+            return true;
+        }
+
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie != null && until(cookie) > now) {
+            request.setAttribute(ReadRouting.PINNED, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    private static long until(Cookie cookie) {
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
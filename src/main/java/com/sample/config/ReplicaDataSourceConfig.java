@@ -0,0 +1,82 @@
+package com.sample.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Read/write routing when user.replica.enabled: read-only transactions read from the replica pool, everything else
+ * goes to the primary pool of spring.datasource. The connection of a transaction is only taken at its first statement,
+ * once it is known to be read-only. The replica defaults to a second pool on the primary, which stands in for a
+ * replica in development
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (!StringUtils.hasText(dataSource.getPoolName())) {
+            dataSource.setPoolName("primary");
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("user.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${user.replica.url:}") String url,
+                                              @Value("${user.replica.username:}") String username,
+                                              @Value("${user.replica.password:}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(StringUtils.hasText(url) ? url : properties.determineUrl())
+                .username(StringUtils.hasText(username) ? username : properties.determineUsername())
+                .password(StringUtils.hasText(password) ? password : properties.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") DataSource replicaDataSource, MeterRegistry meterRegistry,
+                                               @Value("${user.replica.max-lag:1s}") Duration maxLag,
+                                               @Value("${user.replica.lag-check-interval:1s}") Duration checkInterval) {
+        return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, maxLag, checkInterval, meterRegistry);
+    }
+
+    /**
+     * The data source of the application, JPA and JdbcTemplate included
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, meterRegistry));
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesInterceptor readYourWritesInterceptor(@Value("${user.replica.sticky-window:5s}") Duration stickyWindow) {
+        return new ReadYourWritesInterceptor(stickyWindow);
+    }
+}
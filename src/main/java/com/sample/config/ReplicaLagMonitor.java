@@ -0,0 +1,117 @@
+package com.sample.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the replica is behind the primary every check interval. The replica takes reads while its lag is
+ * known and within the maximum, a failed check makes it unusable until the next one succeeds. A database that is not
+ * in recovery, like a second pool of the primary standing in for a replica, has no lag. The replica user needs
+ * pg_read_all_stats to see its WAL receiver
+ */
+@Slf4j(topic = "REPLICA-LAG-MONITOR")
+public class ReplicaLagMonitor implements SmartLifecycle {
+
+    private static final String PRIMARY_LSN = "SELECT pg_current_wal_lsn()::text";
+
+    // A replica that replayed the WAL the primary had at the start of the check is idle, not late: the last replay
+    // timestamp is old on a quiet primary. Without a live WAL receiver nothing tells how far behind it is
+    private static final String LAG = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0
+                        WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming'
+                                         AND (current_setting('wal_receiver_timeout')::interval = interval '0'
+                                              OR now() - last_msg_receipt_time < current_setting('wal_receiver_timeout')::interval)) THEN NULL
+                        WHEN pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn) THEN 0
+                        ELSE extract(epoch FROM now() - pg_last_xact_replay_timestamp()) END""";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final Duration maxLag;
+    private final Duration checkInterval;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean running;
+    private ScheduledExecutorService checker;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, Duration checkInterval, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+        this.checkInterval = checkInterval;
+        Gauge.builder("user.replica.lag.seconds", this, monitor -> monitor.lagSeconds)
+                .description("Replay lag of the read replica, NaN when unknown")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return whether the replica may take reads
+     */
+    public boolean isUsable() {
+        return lagSeconds <= maxLag.toMillis() / 1000.0;
+    }
+
+    /**
+     * Take the replica out until the next successful check, after it failed to give a connection
+     */
+    public void markUnavailable() {
+        lagSeconds = Double.NaN;
+    }
+
+    void check() {
+        try {
+            String primaryLsn;
+            try (Connection con = primary.getConnection(); Statement statement = con.createStatement(); ResultSet rs = statement.executeQuery(PRIMARY_LSN)) {
+                rs.next();
+                primaryLsn = rs.getString(1);
+            }
+            try (Connection con = replica.getConnection(); PreparedStatement statement = con.prepareStatement(LAG)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    double lag = rs.getDouble(1);
+                    lagSeconds = rs.wasNull() ? Double.NaN : lag;
+                }
+            }
+        } catch (SQLException e) {
+            lagSeconds = Double.NaN;
+            log.warn("Replica lag check failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        check();
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::check, checkInterval.toMillis(), checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+        log.info("Replica lag monitor started, max lag {}, lag now {}s", maxLag, lagSeconds);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        checker.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
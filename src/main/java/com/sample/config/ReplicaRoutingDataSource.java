@@ -0,0 +1,69 @@
+package com.sample.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connections of read-only transactions: from the replica unless the reads are pinned to the primary, the replica
+ * lags too far behind or it cannot give a connection, then from the primary. Reads are counted as
+ * user_datasource_reads_total by target and reason
+ */
+@Slf4j(topic = "REPLICA-ROUTING")
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+    private final MeterRegistry meterRegistry;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (ReadRouting.isPinned()) {
+            return primary("pinned");
+        }
+        if (!lagMonitor.isUsable()) {
+            return primary("lagging");
+        }
+        try {
+            Connection connection = replica.getConnection();
+            count("replica", "replica");
+            return connection;
+        } catch (SQLException e) {
+            log.warn("Replica unavailable, reading from primary: {}", e.getMessage());
+            lagMonitor.markUnavailable();
+            return primary("unavailable");
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are routed with the credentials of each pool");
+    }
+
+    private Connection primary(String reason) throws SQLException {
+        Connection connection = primary.getConnection();
+        count("primary", reason);
+        return connection;
+    }
+
+    private void count(String target, String reason) {
+        Counter.builder("user.datasource.reads")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,36 @@
+package com.sample.config;
+
+import com.sample.exception.InvalidDataException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.List;
+
+/**
+ * Turns away the user endpoints sharded storage does not serve with 400. Keyset cursors, specification and text
+ * search, the customize query, bulk changes by search, import, export and batch updates still run on the database of
+ * spring.datasource, which holds no user once users are sharded. Bulk changes by ids are served, their search form
+ * is in the request body and turned away by {@link com.sample.service.UserService}
+ */
+public class ShardedStorageInterceptor implements HandlerInterceptor {
+
+    private static final List<String> SERVED = List.of("POST /user/add", "PUT /user/upd", "DELETE /user/del/*",
+            "GET /user/user/*", "PATCH /user/user/*/change-status", "PATCH /user/change-status", "POST /user/bulk-delete",
+            "GET /user/batch", "GET /user/list", "GET /user/list-sorted-paged", "GET /user/search-with-criteria");
+
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String endpoint = request.getMethod() + " " + urlPathHelper.getLookupPathForRequest(request);
+        if (request.getParameter("cursor") != null || SERVED.stream().noneMatch(served -> pathMatcher.match(served, endpoint))) {
+            throw new InvalidDataException(endpoint + " is not available on sharded storage");
+        }
+        return true;
+    }
+}
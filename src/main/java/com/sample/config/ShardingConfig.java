@@ -0,0 +1,55 @@
+package com.sample.config;
+
+import com.sample.repository.ShardedUserRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash-sharded users when user.sharding.enabled: users live in the databases of user.sharding.urls, one pool per
+ * shard, see {@link ShardedUserRepository}. The database of spring.datasource keeps the JPA schema and carries the
+ * cache invalidations but holds no user. Shards share the credentials of spring.datasource unless given their own
+ */
+@Configuration
+@ConditionalOnProperty(name = "user.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardedUserRepository shardedUserRepository(DataSourceProperties properties, MeterRegistry meterRegistry,
+                                                       @Value("${user.sharding.urls}") String urls,
+                                                       @Value("${user.sharding.username:}") String username,
+                                                       @Value("${user.sharding.password:}") String password,
+                                                       @Value("${user.sharding.maximum-pool-size:10}") int maximumPoolSize) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (String url : StringUtils.commaDelimitedListToStringArray(urls)) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .username(StringUtils.hasText(username) ? username : properties.determineUsername())
+                    .password(StringUtils.hasText(password) ? password : properties.determinePassword())
+                    .build();
+            dataSource.setPoolName("shard-" + pools.size());
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSource.setMetricRegistry(meterRegistry);
+            pools.add(dataSource);
+        }
+        return new ShardedUserRepository(pools, maximumPoolSize);
+    }
+
+    @Bean
+    public ShardedStorageInterceptor shardedStorageInterceptor() {
+        return new ShardedStorageInterceptor();
+    }
+}
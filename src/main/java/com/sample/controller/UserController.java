@@ -2,27 +2,45 @@ package com.sample.controller;
 
 
 import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.request.UserDeleteRequest;
+import com.sample.dto.request.UserStatusChangeRequest;
 import com.sample.dto.request.UserUpdateRequest;
+import com.sample.dto.response.UserBatchUpdateResponse;
+import com.sample.dto.response.UserDeleteResponse;
 import com.sample.dto.response.UserDetailResponse;
+import com.sample.dto.response.UserImportResponse;
 import com.sample.dto.response.UserListResponse;
+import com.sample.dto.response.UserStatusChangeResponse;
 import com.sample.exception.InvalidDataException;
+import com.sample.exception.ResourceNotFoundException;
+import com.sample.service.UserBatchService;
+import com.sample.service.UserExportService;
+import com.sample.service.UserImportService;
 import com.sample.service.UserService;
+import com.sample.util.ExportFormat;
+import com.sample.util.TotalMode;
 import com.sample.util.UserStatus;
 import com.sample.validator.ValueOfEnum;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @RestController
 @RequestMapping("/user")
@@ -32,7 +50,12 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @Tag(name = "User Controller")
 public class UserController {
 
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserBatchService userBatchService;
 
     @Operation(summary = "Add new user", description = "Return user ID")
     @PostMapping(path = "/add", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
@@ -41,29 +64,71 @@ public class UserController {
         return userService.addUser(request);
     }
 
-    @Operation(summary = "Update user", description = "Return message")
+    @Operation(summary = "Import users from NDJSON", description = "Return import totals and the first errors")
+    @PostMapping(path = "/import", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(OK)
+    public UserImportResponse importUsersFromNdjson(InputStream body) throws IOException {
+        return userImportService.importNdjson(body);
+    }
+
+    @Operation(summary = "Import users from CSV", description = "Return import totals and the first errors")
+    @PostMapping(path = "/import", produces = APPLICATION_JSON_VALUE, consumes = TEXT_CSV_VALUE)
+    @ResponseStatus(OK)
+    public UserImportResponse importUsersFromCsv(InputStream body) throws IOException {
+        return userImportService.importCsv(body);
+    }
+
+    @Operation(summary = "Export users to NDJSON or CSV", description = "Stream users matching every search expression, all users without search, ordered by id")
+    @GetMapping(path = "/export")
+    @ResponseStatus(OK)
+    public void exportUsers(@RequestParam(defaultValue = "ndjson") ExportFormat format,
+                            @RequestParam(required = false) String[] search,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        userExportService.export(response.getOutputStream(), format, search);
+    }
+
+    @Operation(summary = "Update user", description = "Only the fields given are written. With a version the update is rejected with 409 once the user has been changed since. Return the new version")
     @PutMapping(path = "/upd", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
     @ResponseStatus(ACCEPTED)
-    public void updateUser(@Valid @RequestBody UserUpdateRequest request) {
+    public long updateUser(@Valid @RequestBody UserUpdateRequest request) {
         try {
-            userService.updateUser(request);
+            return userService.updateUser(request);
+        } catch (InvalidDataException | ResourceNotFoundException | OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             throw new InvalidDataException("Update user unsuccessful, Please try again");
         }
     }
 
+    @Operation(summary = "Update many users", description = "Partial updates as PUT /user/upd, applied in chunks of one statement each. Return the result of every update")
+    @PatchMapping(path = "/batch", produces = APPLICATION_JSON_VALUE, consumes = APPLICATION_JSON_VALUE)
+    @ResponseStatus(OK)
+    public UserBatchUpdateResponse updateUsers(@RequestBody @Size(min = 1, max = 10000, message = "batch must have 1 to 10000 updates") List<@Valid UserUpdateRequest> requests) {
+        return userBatchService.updateUsers(requests);
+    }
+
     @Operation(summary = "Change user status", description = "Return message")
     @PatchMapping(path = "/user/{id}/change-status", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(ACCEPTED)
-    public void changeStatus(@PathVariable long id,
+    public long changeStatus(@PathVariable long id,
                              @RequestParam @ValueOfEnum(message = "status must be any of enum (ACTIVE,INACTIVE,NONE)", enumClass = UserStatus.class) String status) {
         try {
-            userService.changeStatus(id, status);
+            return userService.changeStatus(id, status);
+        } catch (ResourceNotFoundException e) {
+            throw e;
         } catch (Exception e) {
             throw new InvalidDataException("Change status unsuccessful, Please try again");
         }
     }
 
+    @Operation(summary = "Change status of many users", description = "Target users by ids or by search expressions, e.g. search=lastName:Nguyen, changed in chunks. Return affected row counts")
+    @PatchMapping(path = "/change-status", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(OK)
+    public UserStatusChangeResponse changeStatus(@Valid @RequestBody UserStatusChangeRequest request) {
+        return userService.changeStatus(request);
+    }
+
     @Operation(summary = "Delete user", description = "Return no content")
     @DeleteMapping(path = "/del/{id}", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(NO_CONTENT)
@@ -75,13 +140,27 @@ public class UserController {
         }
     }
 
+    @Operation(summary = "Delete many users", description = "Target users by ids or by search expressions, e.g. search=lastName:Nguyen, deleted with their addresses in chunks. Return affected row counts")
+    @PostMapping(path = "/bulk-delete", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(OK)
+    public UserDeleteResponse deleteUsers(@Valid @RequestBody UserDeleteRequest request) {
+        return userService.deleteUsers(request);
+    }
+
     @Operation(summary = "Get user detail", description = "Return user detail")
     @GetMapping(path = "/user/{id}", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(OK)
-    public UserDetailResponse getUser(@PathVariable("id") @Min(1) int id) {
+    public UserDetailResponse getUser(@PathVariable("id") @Min(1) long id) {
         return userService.getUser(id);
     }
 
+    @Operation(summary = "Get users by ids", description = "Return the users found, in the order of the ids")
+    @GetMapping(path = "/batch", produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(OK)
+    public List<UserDetailResponse> getUsersByIds(@RequestParam @Size(min = 1, max = 500, message = "ids must have 1 to 500 ids") List<@Min(1) Long> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
     @Operation(summary = "Get user list has been paged", description = "Return list of users")
     @GetMapping(path = "/list", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(OK)
@@ -89,37 +168,72 @@ public class UserController {
         return userService.getUsers(pageable);
     }
 
-    @Operation(summary = "Get user list has been sorted and paged", description = "Return list of users")
+    @Operation(summary = "Get user list has been sorted and paged", description = "Return list of users, pass cursor (empty for the first page) to page by keyset")
     @GetMapping(path = "/list-sorted-paged", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(OK)
     public UserListResponse getUsers(@RequestParam(defaultValue = "0") int pageNo,
                                      @RequestParam(defaultValue = "20") int pageSize,
-                                     @RequestParam(required = false) String... sort) {
+                                     @RequestParam(required = false) String cursor,
+                                     @RequestParam(required = false) String[] sort,
+                                     HttpServletResponse response) throws IOException {
+        if (cursor != null) {
+            return userService.scrollUsers(cursor, pageSize, sort);
+        }
+        if (userService.isStreamed(pageSize)) {
+            response.setContentType(APPLICATION_JSON_VALUE);
+            userService.writeUsers(response.getOutputStream(), pageNo, pageSize, sort);
+            return null;
+        }
         return userService.getUsers(pageNo, pageSize, sort);
     }
 
-    @Operation(summary = "Search user with criteria", description = "Return list of users")
+    @Operation(summary = "Search user with criteria", description = "Return list of users, pass cursor (empty for the first page) to page by keyset, total is exact, none or estimate")
     @GetMapping(path = "/search-with-criteria", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(OK)
-    public UserListResponse searchWithCriteria(Pageable pageable, @RequestParam String... search) {
-        return userService.getUsersByCriteria(pageable, search);
+    public UserListResponse searchWithCriteria(Pageable pageable,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "exact") TotalMode total,
+                                               @RequestParam String[] search,
+                                               HttpServletResponse response) throws IOException {
+        if (cursor != null) {
+            return userService.scrollUsersByCriteria(cursor, pageable, search);
+        }
+        if (total == TotalMode.exact && userService.isStreamed(pageable.getPageSize())) {
+            response.setContentType(APPLICATION_JSON_VALUE);
+            userService.writeUsersByCriteria(response.getOutputStream(), pageable, search);
+            return null;
+        }
+        return userService.getUsersByCriteria(pageable, total, search);
     }
 
-    @Operation(summary = "Search user with specifications", description = "Return list of users")
+    @Operation(summary = "Search user with specifications", description = "Return list of users, pass cursor (empty for the first page) to page by keyset")
     @GetMapping(path = "/search-with-specifications", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(OK)
-    public UserListResponse searchWithSpecifications(Pageable pageable, @RequestParam String... search) {
+    public UserListResponse searchWithSpecifications(Pageable pageable, @RequestParam(required = false) String cursor, @RequestParam String... search) {
+        if (cursor != null) {
+            return userService.scrollUsersBySpecifications(cursor, pageable, search);
+        }
         return userService.getUsersBySpecifications(pageable, search);
     }
 
-    @Operation(summary = "Get user list has been sorted and paged by customize query", description = "Return list of users")
+    @Operation(summary = "Full-text search user", description = "Return users matching every word in names, email or address city/street, best match first, pass cursor (empty for the first page) to get the next page")
+    @GetMapping(path = "/search-text", produces = APPLICATION_JSON_VALUE)
+    @ResponseStatus(OK)
+    public UserListResponse searchText(@RequestParam String q,
+                                       @RequestParam(defaultValue = "20") @Min(1) int pageSize,
+                                       @RequestParam(required = false) String cursor) {
+        return userService.searchUsersByText(q, cursor, pageSize);
+    }
+
+    @Operation(summary = "Get user list has been sorted and paged by customize query", description = "Return list of users, total is exact, none or estimate")
     @GetMapping(path = "/list-sorted-paged-by-customize-query", produces = APPLICATION_JSON_VALUE)
     @ResponseStatus(OK)
     public UserListResponse getUsersByCustomizeQuery(@RequestParam(required = false) String firstName,
                                                   @RequestParam(required = false) String lastName,
                                                   @RequestParam(required = false) Integer gender,
                                                   @RequestParam(defaultValue = "0") int pageNo,
-                                                  @RequestParam(defaultValue = "20") int pageSize                                                  ) {
-        return userService.getUsersByCustomizeQuery(firstName, lastName, gender, pageNo, pageSize);
+                                                  @RequestParam(defaultValue = "20") int pageSize,
+                                                  @RequestParam(defaultValue = "exact") TotalMode total) {
+        return userService.getUsersByCustomizeQuery(firstName, lastName, gender, pageNo, pageSize, total);
     }
 }
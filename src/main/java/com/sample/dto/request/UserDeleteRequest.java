@@ -0,0 +1,29 @@
+package com.sample.dto.request;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.util.CollectionUtils;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Setter
+@Getter
+public class UserDeleteRequest implements Serializable {
+
+    @Size(max = 10000, message = "ids must have at most 10000 ids")
+    private List<@NotNull @Min(1) Long> ids;
+
+    private List<String> search;
+
+    @JsonIgnore
+    @AssertTrue(message = "Either ids or search must be given")
+    public boolean isTargetGiven() {
+        return CollectionUtils.isEmpty(ids) != CollectionUtils.isEmpty(search);
+    }
+}
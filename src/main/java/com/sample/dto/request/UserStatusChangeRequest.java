@@ -0,0 +1,21 @@
+package com.sample.dto.request;
+
+import com.sample.util.UserStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Setter
+@Getter
+public class UserStatusChangeRequest implements Serializable {
+
+    @NotNull(message = "status must be not null")
+    private UserStatus status;
+
+    private List<Long> ids;
+
+    private List<String> search;
+}
@@ -18,7 +18,7 @@ import static com.sample.util.UserType.*;
 @Getter
 public class UserUpdateRequest implements Serializable {
     @Min(value = 1, message = "Id must be greater than or equal to 1")
-    private Integer id;
+    private Long id;
     private String firstName;
     private String lastName;
     private String phone;
@@ -30,4 +30,6 @@ public class UserUpdateRequest implements Serializable {
     private UserType userType;
     @ValueOfEnum(name="gender", regexp = "(male|female|other)", enumClass = Gender.class)
     private String gender;
+    @Min(value = 0, message = "version must be greater than or equal to 0")
+    private Long version;
 }
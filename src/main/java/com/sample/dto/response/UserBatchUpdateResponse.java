@@ -0,0 +1,37 @@
+package com.sample.dto.response;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+public class UserBatchUpdateResponse implements Serializable {
+    private int total;
+    private int updated;
+    private int conflicts;
+    private int notFound;
+    private int rejected;
+    private List<Item> items;
+
+    /**
+     * Result of one update, in the order of the request
+     */
+    @Getter
+    @Setter
+    @Builder
+    public static class Item implements Serializable {
+        private Long id;
+        private Result result;
+        private Long version;
+        private String error;
+    }
+
+    public enum Result {
+        updated, conflict, not_found, rejected
+    }
+}
@@ -0,0 +1,17 @@
+package com.sample.dto.response;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@Builder
+public class UserDeleteResponse implements Serializable {
+    private long matched;
+    private long deleted;
+    private long deletedAddresses;
+    private int chunks;
+}
@@ -1,5 +1,6 @@
 package com.sample.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 
 import java.io.Serializable;
@@ -19,4 +20,7 @@ public class UserDetailResponse implements Serializable {
     private String phone;
 
     private String email;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
 }
@@ -0,0 +1,31 @@
+package com.sample.dto.response;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+public class UserImportResponse implements Serializable {
+    private long totalRecords;
+    private long imported;
+    private long rejected;
+    private List<RecordError> errors;
+    private boolean errorsTruncated;
+
+    /**
+     * Error of one rejected record, or of every record of a chunk that could not be copied
+     */
+    @Getter
+    @Setter
+    @Builder
+    public static class RecordError implements Serializable {
+        private long firstRecord;
+        private long lastRecord;
+        private String messages;
+    }
+}
@@ -1,5 +1,6 @@
 package com.sample.dto.response;
 
+import com.sample.util.TotalMode;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -14,5 +15,9 @@ public class UserListResponse implements Serializable {
     private int pageNo;
     private int pageSize;
     private int totalPage;
+    private TotalMode totalMode;
+    private Long totalElements;
+    private Boolean hasNext;
     private List<UserDetailResponse> users;
+    private String nextCursor;
 }
@@ -0,0 +1,16 @@
+package com.sample.dto.response;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@Builder
+public class UserStatusChangeResponse implements Serializable {
+    private long matched;
+    private long changed;
+    private int chunks;
+}
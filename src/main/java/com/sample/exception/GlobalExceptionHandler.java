@@ -8,12 +8,15 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolationException;
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.yaml.snakeyaml.constructor.DuplicateKeyException;
 
 import java.util.Date;
@@ -32,7 +35,8 @@ public class GlobalExceptionHandler {
      * @return error
      */
     @ExceptionHandler({InvalidDataException.class, ConstraintViolationException.class,
-            MissingServletRequestParameterException.class, MethodArgumentNotValidException.class})
+            MissingServletRequestParameterException.class, MethodArgumentNotValidException.class,
+            MethodArgumentTypeMismatchException.class})
     @ResponseStatus(BAD_REQUEST)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "400", description = "Bad Request",
@@ -63,7 +67,7 @@ public class GlobalExceptionHandler {
             message = message.substring(start + 1, end - 1);
             error.setError("Invalid payload");
             error.setMessages(message);
-        } else if (e instanceof MissingServletRequestParameterException) {
+        } else if (e instanceof MissingServletRequestParameterException || e instanceof MethodArgumentTypeMismatchException) {
             error.setError("Invalid parameter");
             error.setMessages(message);
         } else if (e instanceof ConstraintViolationException) {
@@ -121,7 +125,7 @@ public class GlobalExceptionHandler {
      * @param request
      * @return
      */
-    @ExceptionHandler(DuplicateKeyException.class)
+    @ExceptionHandler({DuplicateKeyException.class, OptimisticLockingFailureException.class})
     @ResponseStatus(CONFLICT)
     @ApiResponses(value = {
             @ApiResponse(responseCode = "409", description = "Conflict",
@@ -139,7 +143,7 @@ public class GlobalExceptionHandler {
                                             }"""
                             ))})
     })
-    public Error handleDuplicateKeyException(DuplicateKeyException e, WebRequest request) {
+    public Error handleDuplicateKeyException(RuntimeException e, WebRequest request) {
         Error error = new Error();
         error.setTimestamp(new Date());
         error.setPath(request.getDescription(false).replace("uri=", ""));
@@ -150,6 +154,44 @@ public class GlobalExceptionHandler {
         return error;
     }
 
+    /**
+     * Handle requests shed under load, Retry-After tells when to try again
+     *
+     * @param e
+     * @param request
+     * @param response
+     * @return error
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(SERVICE_UNAVAILABLE)
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "503", description = "Service Unavailable",
+                    content = {@Content(mediaType = APPLICATION_JSON_VALUE,
+                            examples = @ExampleObject(
+                                    name = "503 Response",
+                                    summary = "Handle request shed under load",
+                                    value = """
+                                            {
+                                              "timestamp": "2024-03-02T09:37:24.682+00:00",
+                                              "status": 503,
+                                              "path": "/user/search-with-criteria",
+                                              "error": "Service Unavailable",
+                                              "messages": "Too many concurrent search requests, please try again later"
+                                            }"""
+                            ))})
+    })
+    public Error handleServiceUnavailableException(ServiceUnavailableException e, WebRequest request, HttpServletResponse response) {
+        Error error = new Error();
+        error.setTimestamp(new Date());
+        error.setPath(request.getDescription(false).replace("uri=", ""));
+        error.setStatus(SERVICE_UNAVAILABLE.value());
+        error.setError(SERVICE_UNAVAILABLE.getReasonPhrase());
+        error.setMessages(e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter()));
+
+        return error;
+    }
+
     /**
      * Handle exception when internal server error
      *
@@ -0,0 +1,17 @@
+package com.sample.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ServiceUnavailableException extends RuntimeException {
+
+    /**
+     * Seconds the client should wait before trying again
+     */
+    private final long retryAfter;
+
+    public ServiceUnavailableException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
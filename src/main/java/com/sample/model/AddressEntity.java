@@ -1,6 +1,9 @@
 package com.sample.model;
 
+import com.sample.util.Constant;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,10 +17,12 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "tbl_address")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CacheRegion.ADDRESS)
 public class AddressEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pooled_lo_sequence")
     @Column(name = "id")
     private Long id;
 
@@ -42,7 +47,7 @@ public class AddressEntity {
     @Column(name = "country")
     private String country;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity user;
 
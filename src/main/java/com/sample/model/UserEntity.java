@@ -1,10 +1,14 @@
 package com.sample.model;
 
+import com.sample.util.Constant;
 import com.sample.util.Gender;
 import com.sample.util.UserStatus;
 import com.sample.util.UserType;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
@@ -18,6 +22,8 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "tbl_user")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CacheRegion.USER)
 public class UserEntity extends BaseEntity{
 
     @Column(name = "first_name")
@@ -56,9 +62,15 @@ public class UserEntity extends BaseEntity{
     @Column(name = "status")
     private UserStatus status;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
 
 
-    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, mappedBy = "userEntity")
+
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, mappedBy = "user")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constant.CacheRegion.USER_ADDRESSES)
     private Set<AddressEntity> addressEntities = new HashSet<>();
 
     public void saveAddress(AddressEntity addressEntity) {
@@ -0,0 +1,16 @@
+/**
+ * Entities share one pooled-lo sequence generator. Each table gets its own sequence named
+ * {@code <table>_seq} (e.g. tbl_user_seq, tbl_address_seq), which hands out blocks of 50 ids
+ * per round trip so Hibernate can keep JDBC insert batching on.
+ */
+@GenericGenerator(name = "pooled_lo_sequence", type = SequenceStyleGenerator.class, parameters = {
+        @Parameter(name = SequenceStyleGenerator.CONFIG_SEQUENCE_PER_ENTITY_SUFFIX, value = "_seq"),
+        @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + Constant.Sequence.ALLOCATION_SIZE),
+        @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+})
+package com.sample.model;
+
+import com.sample.util.Constant;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
@@ -1,63 +1,372 @@
 package com.sample.repository;
 
-import com.sample.dto.response.UserDetailResponse;
+import com.sample.exception.InvalidDataException;
 import com.sample.model.UserEntity;
+import com.sample.repository.criteria.SearchAttribute;
 import com.sample.repository.criteria.SearchCriteria;
+import com.sample.repository.criteria.TextSearchPlanner;
+import com.sample.repository.criteria.UserSearchAttributes;
 import com.sample.repository.criteria.UserSearchQueryCriteriaConsumer;
+import com.sample.repository.keyset.KeysetCursor;
+import com.sample.repository.keyset.KeysetPage;
+import com.sample.repository.projection.UserSummary;
+import com.sample.util.Constant;
+import com.sample.util.Gender;
+import com.sample.util.SearchOperation;
+import com.sample.util.TotalMode;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.Query;
-import jakarta.persistence.criteria.CriteriaBuilder;
-import jakarta.persistence.criteria.CriteriaQuery;
-import jakarta.persistence.criteria.Predicate;
-import jakarta.persistence.criteria.Root;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.sqm.internal.SqmCriteriaNodeBuilder;
+import org.hibernate.query.sqm.tree.expression.SqmExpression;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Component
+@RequiredArgsConstructor
 public class SearchRepository {
 
+    private static final String ID = "id";
+    private static final String ESTIMATE_ALL_USERS = "SELECT reltuples::int8 FROM pg_class WHERE oid = 'tbl_user'::regclass";
+    private static final Pattern PLAN_ROWS = Pattern.compile(" rows=(\\d+)");
+
+    private final JdbcTemplate jdbcTemplate;
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${user.search.query-cache:false}")
+    private boolean queryCache;
+
     /**
      * Search user by criteria
      *
-     * @param params list of filter conditions
+     * @param pageable includes page, size and sort
+     * @param params   list of filter conditions
+     * @param total    exact count, planner estimate or no total at all
+     * @return page of users, a slice without total when total is none
+     */
+    @Transactional(readOnly = true)
+    public Slice<UserSummary> findAllUsersByCriteria(Pageable pageable, List<SearchCriteria> params, TotalMode total) {
+        return findAllUsers(pageable, toSpecification(params), total, () -> estimateUsers(params));
+    }
+
+    /**
+     * Search user by specification
+     *
+     * @param pageable      includes page, size and sort
+     * @param specification filter conditions
      * @return list of users
      */
-    public Page<UserEntity> findAllUsersByCriteria(Pageable pageable, List<SearchCriteria> params) {
+    @Transactional(readOnly = true)
+    public Page<UserSummary> findAllUsersBySpecification(Pageable pageable, Specification<UserEntity> specification) {
+        return findPageWithTotal(pageable, specification);
+    }
+
+    /**
+     * Stream users ordered by id from a forward-only cursor, fetchSize rows per round trip. Rows are UserSummary
+     * values, no entity enters the persistence context. Must be consumed inside a transaction and closed
+     *
+     * @param specification filter conditions, null for all users
+     * @param fetchSize     rows per round trip
+     * @return stream of users
+     */
+    public Stream<UserSummary> streamUsers(Specification<UserEntity> specification, int fetchSize) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<UserSummary> query = builder.createQuery(UserSummary.class);
+        final Root<UserEntity> r = query.from(UserEntity.class);
+
+        query.select(builder.construct(UserSummary.class, r.get(ID), r.get("firstName"), r.get("lastName"), r.get("email"), r.get("phone")));
+        Predicate filter = specification == null ? null : specification.toPredicate(r, query, builder);
+        if (filter != null) {
+            query.where(filter);
+        }
+        query.orderBy(builder.asc(r.get(ID)));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    /**
+     * Select the next ids matching a specification after an id, in id order. Only the id column is read, so a bulk
+     * change can walk its targets in chunks without loading entities
+     *
+     * @param specification filter conditions, null for all users
+     * @param afterId       last id of the previous chunk, 0 for the first chunk
+     * @param limit         size of chunk
+     * @return ids of the chunk, fewer than limit on the last chunk
+     */
+    public List<Long> findIds(Specification<UserEntity> specification, long afterId, int limit) {
         final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
-        final CriteriaQuery<UserEntity> query = builder.createQuery(UserEntity.class);
+        final CriteriaQuery<Long> query = builder.createQuery(Long.class);
         final Root<UserEntity> r = query.from(UserEntity.class);
 
-        Predicate predicate = builder.conjunction();
-        UserSearchQueryCriteriaConsumer searchConsumer = new UserSearchQueryCriteriaConsumer(predicate, builder, r);
-        params.forEach(searchConsumer);
-        predicate = searchConsumer.getPredicate();
-        query.where(predicate);
+        Predicate after = builder.greaterThan(r.get(ID), afterId);
+        Predicate filter = specification == null ? null : specification.toPredicate(r, query, builder);
+        query.select(r.get(ID)).where(filter == null ? after : builder.and(after, filter));
+        query.orderBy(builder.asc(r.get(ID)));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Select only the columns of UserSummary, tbl_address is never touched
+     *
+     * @param pageable      includes page, size and sort
+     * @param specification filter conditions
+     * @param total         exact count, planner estimate or no total at all
+     * @param estimate      estimated number of matching rows, only called when total is estimate
+     * @return page of users, a slice without total when total is none
+     */
+    private Slice<UserSummary> findAllUsers(Pageable pageable, Specification<UserEntity> specification, TotalMode total, LongSupplier estimate) {
+        if (total == TotalMode.exact) {
+            return findPageWithTotal(pageable, specification);
+        }
+
+        // One more row tells whether there is a next slice
+        List<UserSummary> users = findPage(pageable, specification, total == TotalMode.none ? pageable.getPageSize() + 1 : pageable.getPageSize());
+
+        if (total == TotalMode.none) {
+            return toSlice(users, pageable);
+        }
+        return new PageImpl<>(users, pageable, estimate.getAsLong());
+    }
+
+    /**
+     * Page rows and exact total in one statement, the total is a count(*) OVER () column of every row,
+     * so the predicate is evaluated once. With user.search.query-cache the result goes to the query cache
+     *
+     * @param pageable      includes page, size and sort
+     * @param specification filter conditions
+     * @return page of users
+     */
+    Page<UserSummary> findPageWithTotal(Pageable pageable, Specification<UserEntity> specification) {
+        final HibernateCriteriaBuilder builder = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        final Root<UserEntity> r = query.from(UserEntity.class);
+
+        query.multiselect(r.get("id"), r.get("firstName"), r.get("lastName"), r.get("email"), r.get("phone"),
+                builder.count(r, builder.createWindow()));
+        query.where(specification.toPredicate(r, query, builder));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), r, builder));
+
+        TypedQuery<Tuple> pageQuery = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+        if (queryCache) {
+            pageQuery.setHint(HibernateHints.HINT_CACHEABLE, true).setHint(HibernateHints.HINT_CACHE_REGION, Constant.CacheRegion.USER_SEARCH);
+        }
+        List<Tuple> rows = pageQuery.getResultList();
+
+        if (rows.isEmpty()) {
+            // Past the last row there is no row to carry the total
+            return new PageImpl<>(List.of(), pageable, pageable.getOffset() > 0 ? count(specification) : 0);
+        }
+
+        List<UserSummary> users = rows.stream().map(t -> new UserSummary(t.get(0, Long.class), t.get(1, String.class),
+                t.get(2, String.class), t.get(3, String.class), t.get(4, String.class))).toList();
+        return new PageImpl<>(users, pageable, rows.get(0).get(5, Long.class));
+    }
+
+    /**
+     * Page rows and exact total in two statements, the page query then a count query with the same predicate
+     *
+     * @param pageable      includes page, size and sort
+     * @param specification filter conditions
+     * @return page of users
+     */
+    Page<UserSummary> findPageThenCount(Pageable pageable, Specification<UserEntity> specification) {
+        return new PageImpl<>(findPage(pageable, specification, pageable.getPageSize()), pageable, count(specification));
+    }
+
+    private List<UserSummary> findPage(Pageable pageable, Specification<UserEntity> specification, int maxResults) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<UserSummary> query = builder.createQuery(UserSummary.class);
+        final Root<UserEntity> r = query.from(UserEntity.class);
+
+        query.select(builder.construct(UserSummary.class, r.get("id"), r.get("firstName"), r.get("lastName"), r.get("email"), r.get("phone")));
+        query.where(specification.toPredicate(r, query, builder));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), r, builder));
 
         // This query fetches the Users as per the Page Limit
-         List<UserEntity> userEntityList = entityManager.createQuery(query)
-                 .setFirstResult((int) pageable.getOffset())
-                 .setMaxResults(pageable.getPageSize())
-                 .getResultList();
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    private long count(Specification<UserEntity> specification) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 
         // Create count query
         CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
         Root<UserEntity> usersRootCount = countQuery.from(UserEntity.class);
-        countQuery.select(builder.count(usersRootCount)).where(predicate);
+        countQuery.select(builder.count(usersRootCount)).where(specification.toPredicate(usersRootCount, countQuery, builder));
 
         // Fetches the count of all UserEntity as per given criteria
-        Long count = entityManager.createQuery(countQuery).getSingleResult();
+        return entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    /**
+     * Search user by criteria, one keyset page after the given cursor
+     *
+     * @param params   list of filter conditions
+     * @param sort     at most one sort field, id is always the tie breaker
+     * @param cursor   token of the previous page, empty for the first page
+     * @param pageSize size of page
+     * @return list of users and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<UserSummary> findUsersByKeyset(List<SearchCriteria> params, Sort sort, String cursor, int pageSize) {
+        return findUsersByKeyset(toSpecification(params), sort, cursor, pageSize);
+    }
+
+    /**
+     * Search user by specification, one keyset page after the given cursor.
+     * Each page seeks with WHERE (sortKey, id) > (?, ?) so it is served from an index on (sortKey, id) whatever its depth,
+     * rows with a NULL sort key come after all others, ordered by id.
+     *
+     * @param specification filter conditions, null for all users
+     * @param sort          at most one sort field, id is always the tie breaker
+     * @param cursor        token of the previous page, empty for the first page
+     * @param pageSize      size of page
+     * @return list of users and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<UserSummary> findUsersByKeyset(Specification<UserEntity> specification, Sort sort, String cursor, int pageSize) {
+        List<Sort.Order> orders = sort.filter(o -> !ID.equals(o.getProperty())).toList();
+        if (orders.size() > 1) {
+            throw new InvalidDataException("Cursor paging supports only one sort field");
+        }
+        Sort.Order idOrder = sort.getOrderFor(ID);
+        // the key of the last row goes into the cursor, so only searchable attributes can be sorted on
+        String property = orders.isEmpty() ? ID : UserSearchAttributes.get(orders.get(0).getProperty()).getName();
+        boolean descending = orders.isEmpty() ? idOrder != null && idOrder.isDescending() : orders.get(0).isDescending();
+
+        KeysetCursor after = StringUtils.hasLength(cursor) ? KeysetCursor.decode(cursor) : null;
+        if (after != null && (!after.getProperty().equals(property) || after.isDescending() != descending)) {
+            throw new InvalidDataException("Cursor does not match the sort order");
+        }
+
+        // rows with a sort key first, then rows whose sort key is NULL
+        List<Tuple> rows = new ArrayList<>();
+        if (ID.equals(property) || after == null || after.getKey() != null) {
+            rows.addAll(seek(specification, property, descending, after, false, pageSize + 1));
+        }
+        if (!ID.equals(property) && rows.size() <= pageSize) {
+            KeysetCursor afterNull = after != null && after.getKey() == null ? after : null;
+            rows.addAll(seek(specification, property, descending, afterNull, true, pageSize + 1 - rows.size()));
+        }
 
-        return new PageImpl<>(userEntityList, pageable, count);
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Tuple last = rows.get(pageSize - 1);
+            nextCursor = KeysetCursor.of(property, descending, last.get(0, Long.class), last.get(5)).encode();
+        }
+
+        List<UserSummary> users = rows.stream()
+                .map(t -> new UserSummary(t.get(0, Long.class), t.get(1, String.class), t.get(2, String.class), t.get(3, String.class), t.get(4, String.class)))
+                .toList();
+
+        return new KeysetPage<>(users, pageSize, nextCursor);
+    }
+
+    private List<Tuple> seek(Specification<UserEntity> specification, String property, boolean descending, KeysetCursor after, boolean nullKeys, int limit) {
+        final CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        final Root<UserEntity> r = query.from(UserEntity.class);
+
+        final Path<Long> id = r.get(ID);
+        final Path<Object> key = r.get(property);
+        query.multiselect(id, r.get("firstName"), r.get("lastName"), r.get("email"), r.get("phone"), key);
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate filter = specification == null ? null : specification.toPredicate(r, query, builder);
+        if (filter != null) {
+            predicates.add(filter);
+        }
+
+        if (nullKeys || ID.equals(property)) {
+            if (nullKeys) {
+                predicates.add(builder.isNull(key));
+            }
+            if (after != null) {
+                predicates.add(descending ? builder.lessThan(id, after.getId()) : builder.greaterThan(id, after.getId()));
+            }
+            query.orderBy(descending ? builder.desc(id) : builder.asc(id));
+        } else {
+            predicates.add(after == null
+                    ? builder.isNotNull(key)
+                    : rowValueComparison(builder, key, id, after.typedKey(key.getJavaType()), after.getId(), descending));
+            query.orderBy(descending ? builder.desc(key) : builder.asc(key), descending ? builder.desc(id) : builder.asc(id));
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * (key, id) > (?, ?) or (key, id) < (?, ?) as one row value comparison, which PostgreSQL serves by a single index range scan.
+     * Hibernate cannot type enum columns inside a row value, those use the equivalent key >= ? AND (key > ? OR id > ?).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate rowValueComparison(CriteriaBuilder builder, Path<Object> key, Path<Long> id, Object keyValue, long idValue, boolean descending) {
+        if (key.getJavaType().isEnum()) {
+            Expression k = key;
+            Comparable v = (Comparable) keyValue;
+            return descending
+                    ? builder.and(builder.lessThanOrEqualTo(k, v), builder.or(builder.lessThan(k, v), builder.lessThan(id, idValue)))
+                    : builder.and(builder.greaterThanOrEqualTo(k, v), builder.or(builder.greaterThan(k, v), builder.greaterThan(id, idValue)));
+        }
+
+        SqmCriteriaNodeBuilder nodeBuilder = (SqmCriteriaNodeBuilder) builder;
+        SqmExpression<Object> keyExpression = (SqmExpression<Object>) key;
+        SqmExpression<Long> idExpression = (SqmExpression<Long>) id;
+        Expression row = nodeBuilder.tuple(Object[].class, keyExpression, idExpression);
+        Expression values = nodeBuilder.tuple(Object[].class,
+                nodeBuilder.value(keyValue, keyExpression),
+                nodeBuilder.value(idValue, idExpression));
+        return descending ? builder.lessThan(row, values) : builder.greaterThan(row, values);
+    }
+
+    private static Specification<UserEntity> toSpecification(List<SearchCriteria> params) {
+        return (root, query, builder) -> {
+            UserSearchQueryCriteriaConsumer searchConsumer = new UserSearchQueryCriteriaConsumer(builder.conjunction(), builder, root);
+            params.forEach(searchConsumer);
+            return searchConsumer.getPredicate();
+        };
     }
 
     /**
@@ -68,41 +377,165 @@ public class SearchRepository {
      * @param gender
      * @param pageNo
      * @param pageSize
-     * @return list of users
+     * @param total     exact count, planner estimate or no total at all
+     * @return page of users, a slice without total when total is none
      */
-    public Page<UserDetailResponse> findAllUsersByCustomizeQuery(String firstName, String lastName, Integer gender, int pageNo, int pageSize) {
+    @Transactional(readOnly = true)
+    public Slice<UserSummary> findAllUsersByCustomizeQuery(String firstName, String lastName, Integer gender, int pageNo, int pageSize, TotalMode total) {
         StringBuilder where = new StringBuilder(" WHERE 1=1");
+        StringBuilder nativeWhere = new StringBuilder();
+        List<Object> args = new ArrayList<>();
 
         if (StringUtils.hasLength(firstName)) {
             where.append(" AND u.firstName=:firstName");
+            appendCondition(nativeWhere, args, "first_name = ?", firstName);
         }
         if (StringUtils.hasLength(lastName)) {
             where.append(" AND u.lastName=:lastName");
+            appendCondition(nativeWhere, args, "last_name = ?", lastName);
         }
         if (null != gender) {
             where.append(" AND u.gender=:gender");
+            appendCondition(nativeWhere, args, "gender = ?", toGender(gender).name());
         }
 
         // Get list of users
-        Query selectQuery = entityManager.createQuery(String.format("SELECT new com.sample.dto.response.UserDetailResponse(u.id, u.firstName, u.lastName, u.email, u.phone) FROM UserEntity u %s ORDER BY u.id DESC", where));
-        selectQuery.setFirstResult(pageNo);
-        selectQuery.setMaxResults(pageSize);
-        if (where.toString().contains("AND")) {
-            if (StringUtils.hasLength(firstName)) {
-                selectQuery.setParameter(":firstName", firstName);
-            }
-            if (StringUtils.hasLength(lastName)) {
-                selectQuery.setParameter(":lastName", lastName);
-            }
-            if (null != gender) {
-                selectQuery.setParameter(":gender", gender);
-            }
+        TypedQuery<UserSummary> selectQuery = entityManager.createQuery(String.format("SELECT new com.sample.repository.projection.UserSummary(u.id, u.firstName, u.lastName, u.email, u.phone) FROM UserEntity u %s ORDER BY u.id DESC", where), UserSummary.class);
+        selectQuery.setFirstResult(pageNo * pageSize);
+        selectQuery.setMaxResults(total == TotalMode.none ? pageSize + 1 : pageSize);
+        setParameters(selectQuery, firstName, lastName, gender);
+        List<UserSummary> userList = selectQuery.getResultList();
+
+        if (total == TotalMode.none) {
+            return toSlice(userList, PageRequest.of(pageNo, pageSize));
+        }
+        if (total == TotalMode.estimate) {
+            return new PageImpl<>(userList, PageRequest.of(pageNo, pageSize), estimateUsers(jdbcTemplate, nativeWhere.toString(), args));
         }
-        List<UserDetailResponse> userList = selectQuery.getResultList();
 
         // Count users
-        Long count = (Long) entityManager.createQuery(String.format("SELECT COUNT(*) FROM UserEntity u %s", where)).getSingleResult();
+        Query countQuery = entityManager.createQuery(String.format("SELECT COUNT(*) FROM UserEntity u %s", where));
+        setParameters(countQuery, firstName, lastName, gender);
+        Long count = (Long) countQuery.getSingleResult();
 
         return new PageImpl<>(userList, PageRequest.of(pageNo,pageSize), count);
     }
+
+    private void setParameters(Query query, String firstName, String lastName, Integer gender) {
+        if (StringUtils.hasLength(firstName)) {
+            query.setParameter("firstName", firstName);
+        }
+        if (StringUtils.hasLength(lastName)) {
+            query.setParameter("lastName", lastName);
+        }
+        if (null != gender) {
+            query.setParameter("gender", toGender(gender));
+        }
+    }
+
+    private static Gender toGender(int ordinal) {
+        if (ordinal < 0 || ordinal >= Gender.values().length) {
+            throw new InvalidDataException("Invalid gender");
+        }
+        return Gender.values()[ordinal];
+    }
+
+    /**
+     * Drop the extra row fetched to find out whether there is a next slice
+     */
+    private static <T> Slice<T> toSlice(List<T> content, Pageable pageable) {
+        boolean hasNext = content.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    /**
+     * Estimate the users matching the criteria
+     *
+     * @param params list of filter conditions
+     * @return estimated number of users
+     */
+    private long estimateUsers(List<SearchCriteria> params) {
+        NativeWhere where = toNativeWhere(params);
+        return estimateUsers(jdbcTemplate, where.sql(), where.args());
+    }
+
+    /**
+     * Render the criteria to a native where clause the same way UserSearchQueryCriteriaConsumer builds its predicate,
+     * values are to be bound untyped (Types.OTHER)
+     *
+     * @param params list of filter conditions
+     * @return where clause, empty without conditions, and its values
+     */
+    static NativeWhere toNativeWhere(List<SearchCriteria> params) {
+        StringBuilder where = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        for (SearchCriteria param : params) {
+            SearchAttribute attribute = UserSearchAttributes.get(param.getKey());
+            String column = attribute.getColumn();
+            Object value = toSqlValue(attribute.coerce(param.getValue()));
+            switch (param.getOperation()) {
+                case ">" -> appendCondition(where, args, column + " >= ?", value);
+                case "<" -> appendCondition(where, args, column + " <= ?", value);
+                case ":" -> {
+                    if (attribute.isText()) {
+                        String pattern = TextSearchPlanner.pattern(attribute, SearchOperation.CONTAINS, value.toString());
+                        appendCondition(where, args, TextSearchPlanner.condition(attribute, pattern), pattern);
+                    } else {
+                        appendCondition(where, args, column + " = ?", value);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return new NativeWhere(where.toString(), args);
+    }
+
+    /**
+     * Text form PostgreSQL parses for the column type, values are sent untyped
+     */
+    private static Object toSqlValue(Object value) {
+        if (value instanceof Date date) {
+            return new Timestamp(date.getTime()).toString();
+        }
+        return value instanceof Enum<?> e ? e.name() : value;
+    }
+
+    /**
+     * Estimate the users matching a native where clause without counting them. An unfiltered listing reads
+     * pg_class.reltuples, a filtered one takes the row estimate of the planner
+     *
+     * @param jdbcTemplate database of the users
+     * @param where        native conditions, empty for all users
+     * @param args         values of the conditions
+     * @return estimated number of users
+     */
+    static long estimateUsers(JdbcTemplate jdbcTemplate, String where, List<Object> args) {
+        if (where.isEmpty()) {
+            Long reltuples = jdbcTemplate.queryForObject(ESTIMATE_ALL_USERS, Long.class);
+            // -1 until the table has been vacuumed or analyzed for the first time
+            if (reltuples != null && reltuples >= 0) {
+                return reltuples;
+            }
+        }
+
+        // Values are sent untyped so PostgreSQL infers the type of each column, enums included
+        List<String> plan = jdbcTemplate.query("EXPLAIN SELECT 1 FROM tbl_user" + where,
+                ps -> {
+                    for (int i = 0; i < args.size(); i++) {
+                        ps.setObject(i + 1, args.get(i), Types.OTHER);
+                    }
+                },
+                (rs, rowNum) -> rs.getString(1));
+        Matcher matcher = PLAN_ROWS.matcher(plan.get(0));
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    private static void appendCondition(StringBuilder where, List<Object> args, String condition, Object value) {
+        where.append(where.isEmpty() ? " WHERE " : " AND ").append(condition);
+        args.add(value);
+    }
+
+    record NativeWhere(String sql, List<Object> args) {
+    }
 }
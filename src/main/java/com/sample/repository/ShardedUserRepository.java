@@ -0,0 +1,526 @@
+package com.sample.repository;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.exception.ServiceUnavailableException;
+import com.sample.repository.SearchRepository.NativeWhere;
+import com.sample.repository.criteria.SearchAttribute;
+import com.sample.repository.criteria.SearchCriteria;
+import com.sample.repository.criteria.UserSearchAttributes;
+import com.sample.repository.projection.UserSummary;
+import com.sample.repository.projection.VersionedUserSummary;
+import com.sample.util.TotalMode;
+import com.sample.util.UserStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static com.sample.util.Constant.Sequence.*;
+
+/**
+ * Users hash-sharded over several PostgreSQL databases created from initdb.sql. The shard of a user is part of its id,
+ * id = local id * MAX_SHARDS + shard where the local id comes from tbl_user_seq of the shard, so a user is read,
+ * updated and deleted on its shard alone and adding a shard moves no existing user. New users go to the shard of the
+ * hash of their username modulo the shard count, see {@link #insert}. Pages of the list and search endpoints are read
+ * from every shard in parallel and merge-sorted. Statements go around Hibernate like {@link UserBulkRepository}, callers evict the changed users
+ */
+@Slf4j(topic = "USER-SHARDS")
+public class ShardedUserRepository implements AutoCloseable {
+
+    public static final int MAX_SHARDS = 64;
+
+    private static final String INSERT_USER = """
+            INSERT INTO tbl_user (id, created_at, updated_at, first_name, last_name, date_of_birth, gender, phone, email, username, password, type, status)
+            VALUES (?, now(), now(), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_ADDRESS = """
+            INSERT INTO tbl_address (id, created_at, updated_at, user_id, apartment_number, floor, building, street_number, street, city, country, address_type)
+            VALUES (?, now(), now(), ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String FIND_SUMMARIES = "SELECT id, first_name, last_name, email, phone, version FROM tbl_user WHERE id = ANY(?)";
+    private static final String EXISTS = "SELECT EXISTS (SELECT 1 FROM tbl_user WHERE id = ?)";
+    private static final String PAGE = "SELECT id, first_name, last_name, email, phone";
+
+    private final List<Shard> shards;
+    private final List<DataSource> dataSources;
+    private final ExecutorService executor;
+
+    /**
+     * @param dataSources         one per shard, in shard order. The order is part of the ids, shards may be appended but
+     *                            never reordered or removed
+     * @param connectionsPerShard pool size of each shard, queries in parallel beyond all the connections are rejected
+     */
+    public ShardedUserRepository(List<? extends DataSource> dataSources, int connectionsPerShard) {
+        if (dataSources.isEmpty() || dataSources.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Sharded storage needs 1 to " + MAX_SHARDS + " shards, got " + dataSources.size());
+        }
+        this.dataSources = List.copyOf(dataSources);
+        List<Shard> list = new ArrayList<>(dataSources.size());
+        for (int i = 0; i < dataSources.size(); i++) {
+            list.add(new Shard(i, dataSources.get(i)));
+        }
+        this.shards = List.copyOf(list);
+
+        AtomicInteger threads = new AtomicInteger();
+        int maxThreads = dataSources.size() * connectionsPerShard;
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "user-shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        log.info("Sharded user storage on {} shards", shards.size());
+    }
+
+    /**
+     * @param id user id
+     * @return index of the shard holding the user
+     */
+    public static int shardOf(long id) {
+        return (int) (id % MAX_SHARDS);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Insert a user with its addresses on the shard of its username and index it for full-text search, in one
+     * transaction of that shard. The username only spreads new users: no user is looked up by username and usernames
+     * are not unique in initdb.sql. Appending a shard sends a username to another shard than before, so a per-shard
+     * unique index on username would only hold if the shard count never changed
+     *
+     * @param req validated user
+     * @return id of the user
+     */
+    public long insert(UserCreationRequest req) {
+        Shard shard = shards.get(Math.floorMod(Objects.hashCode(req.getUsername()), shards.size()));
+        Long id = shard.transactionTemplate.execute(tx -> {
+            long userId = shard.userIds.next() * MAX_SHARDS + shard.index;
+            shard.jdbcTemplate.update(INSERT_USER, ps -> {
+                ps.setLong(1, userId);
+                ps.setString(2, req.getFirstName());
+                ps.setString(3, req.getLastName());
+                ps.setString(4, req.getDateOfBirth());
+                // untyped so enum names bind to the enum types of the columns
+                ps.setObject(5, req.getGender() == null ? null : req.getGender().name(), Types.OTHER);
+                ps.setString(6, req.getPhone());
+                ps.setString(7, req.getEmail());
+                ps.setString(8, req.getUsername());
+                ps.setString(9, req.getPassword());
+                ps.setObject(10, req.getType() == null ? null : req.getType().name(), Types.OTHER);
+                ps.setObject(11, UserStatus.none.name(), Types.OTHER);
+            });
+
+            if (req.getAddresses() != null && !req.getAddresses().isEmpty()) {
+                shard.jdbcTemplate.batchUpdate(INSERT_ADDRESS, req.getAddresses(), req.getAddresses().size(), (ps, address) -> {
+                    ps.setLong(1, shard.addressIds.next());
+                    ps.setLong(2, userId);
+                    ps.setString(3, address.getApartmentNumber());
+                    ps.setString(4, address.getFloor());
+                    ps.setString(5, address.getBuilding());
+                    ps.setString(6, address.getStreetNumber());
+                    ps.setString(7, address.getStreet());
+                    ps.setString(8, address.getCity());
+                    ps.setString(9, address.getCountry());
+                    ps.setObject(10, address.getAddressType(), Types.INTEGER);
+                });
+            }
+            shard.textSearch.refreshSearchVectors(userId);
+            return userId;
+        });
+        return Objects.requireNonNull(id);
+    }
+
+    /**
+     * @param id user id
+     * @return the user with its version, read from its shard
+     */
+    public Optional<VersionedUserSummary> findSummaryById(long id) {
+        return findSummaryByIdIn(List.of(id)).stream().findFirst();
+    }
+
+    /**
+     * @param ids user ids
+     * @return users found, one query per shard holding some of them
+     */
+    public List<VersionedUserSummary> findSummaryByIdIn(Collection<Long> ids) {
+        return onShardsOf(ids, (shard, shardIds) -> shard.jdbcTemplate.query(FIND_SUMMARIES,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", shardIds.toArray())),
+                (rs, rowNum) -> new VersionedUserSummary(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                        rs.getString(5), rs.getLong(6))));
+    }
+
+    /**
+     * @param id user id
+     * @return whether the shard of the id holds the user
+     */
+    public boolean existsById(long id) {
+        Shard shard = shardFor(id);
+        return shard != null && Boolean.TRUE.equals(shard.jdbcTemplate.queryForObject(EXISTS, Boolean.class, id));
+    }
+
+    /**
+     * Partial update of a user on its shard, see {@link UserUpdateRepository#updateColumns(long, Long, Map)}. The
+     * search vector is refreshed in the same transaction when an indexed column changes
+     *
+     * @param id      user id
+     * @param version expected version, null to update any version
+     * @param columns column names to values
+     * @return new version, null when no row matched
+     */
+    public Long updateColumns(long id, Long version, Map<String, Object> columns) {
+        Shard shard = shardFor(id);
+        if (shard == null) {
+            return null;
+        }
+        return shard.transactionTemplate.execute(tx -> {
+            Long updated = shard.updates.updateColumns(id, version, columns);
+            if (updated != null && UserUpdateRepository.changesSearchVector(columns.keySet())) {
+                shard.textSearch.refreshSearchVectors(id);
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * Set the status of users, one transaction per shard holding some of them
+     *
+     * @param ids    user ids
+     * @param status new status
+     * @return ids of the users changed
+     */
+    public List<Long> updateStatus(Collection<Long> ids, UserStatus status) {
+        return onShardsOf(ids, (shard, shardIds) -> shard.transactionTemplate.execute(tx -> shard.bulk.updateStatus(shardIds, status)));
+    }
+
+    /**
+     * Delete users and their addresses, one transaction per shard holding some of them
+     *
+     * @param ids       user ids
+     * @param addresses incremented by the number of addresses deleted
+     * @return ids of the users deleted
+     */
+    public List<Long> deleteUsers(Collection<Long> ids, LongAdder addresses) {
+        return onShardsOf(ids, (shard, shardIds) -> shard.transactionTemplate.execute(tx -> {
+            addresses.add(shard.bulk.deleteAddresses(shardIds));
+            return shard.bulk.deleteUsers(shardIds);
+        }));
+    }
+
+    /**
+     * Page of users matching the criteria over all shards. Every shard returns its first offset + size rows in the
+     * page order, the merge of them holds the page. Text sort keys are ordered by code point (COLLATE "C") on every
+     * shard, the order in which they are merged here. Deep pages cost offset + size rows per shard
+     *
+     * @param pageable includes page, size and sort
+     * @param params   list of filter conditions, empty for all users
+     * @param total    exact count, planner estimate or no total at all, summed over the shards
+     * @return page of users, a slice without total when total is none
+     */
+    public Slice<UserSummary> findPage(Pageable pageable, List<SearchCriteria> params, TotalMode total) {
+        NativeWhere where = SearchRepository.toNativeWhere(params);
+        List<SortKey> keys = new ArrayList<>();
+        for (Sort.Order order : pageable.getSort()) {
+            keys.add(new SortKey(UserSearchAttributes.get(order.getProperty()), order.isDescending()));
+        }
+
+        boolean counted = total == TotalMode.exact;
+        // One more row tells whether there is a next slice
+        long limit = pageable.getOffset() + pageable.getPageSize() + (total == TotalMode.none ? 1 : 0);
+        String sql = toPageQuery(where, keys, counted);
+
+        List<List<Row>> pages = onShards(shards, shard -> shard.jdbcTemplate.query(sql, ps -> {
+            bind(ps, where.args());
+            ps.setLong(where.args().size() + 1, limit);
+        }, (rs, rowNum) -> toRow(rs, keys, counted)));
+        List<UserSummary> users = merge(pages, toComparator(keys), pageable.getOffset(), limit - pageable.getOffset());
+
+        if (total == TotalMode.none) {
+            boolean hasNext = users.size() > pageable.getPageSize();
+            return new SliceImpl<>(hasNext ? users.subList(0, pageable.getPageSize()) : users, pageable, hasNext);
+        }
+        long sum;
+        if (counted) {
+            // A shard without rows up to the end of the page has no matching row
+            sum = pages.stream().mapToLong(page -> page.isEmpty() ? 0 : page.get(0).total()).sum();
+        } else {
+            sum = onShards(shards, shard -> List.of(SearchRepository.estimateUsers(shard.jdbcTemplate, where.sql(), where.args())))
+                    .stream().mapToLong(estimate -> estimate.get(0)).sum();
+        }
+        return new PageImpl<>(users, pageable, sum);
+    }
+
+    /**
+     * Stop the shard queries and close the pools of the shards
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.error("Close shard pool unsuccessful, errorMessage={}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Shard shardFor(long id) {
+        int index = shardOf(id);
+        return id > 0 && index < shards.size() ? shards.get(index) : null;
+    }
+
+    /**
+     * Run an action on each shard holding some of the ids with the ids it holds, ids of no shard are skipped
+     */
+    private <T> List<T> onShardsOf(Collection<Long> ids, BiFunction<Shard, List<Long>, List<T>> action) {
+        Map<Shard, List<Long>> byShard = new LinkedHashMap<>();
+        for (Long id : ids) {
+            Shard shard = shardFor(id);
+            if (shard != null) {
+                byShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+            }
+        }
+        List<List<T>> results = onShards(List.copyOf(byShard.keySet()), shard -> action.apply(shard, byShard.get(shard)));
+        return results.stream().flatMap(List::stream).toList();
+    }
+
+    /**
+     * Run a query on shards in parallel, a single shard is queried on the calling thread
+     *
+     * @return results in the order of the shards
+     */
+    private <T> List<List<T>> onShards(List<Shard> targets, Function<Shard, List<T>> query) {
+        if (targets.size() == 1) {
+            return List.of(query.apply(targets.get(0)));
+        }
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(targets.size());
+        try {
+            for (Shard shard : targets) {
+                futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+            }
+        } catch (RejectedExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new ServiceUnavailableException("Too many concurrent shard queries, please try again later", 1);
+        }
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Select the summary columns, the sort keys and the total of each row. Sort properties are mapped to columns
+     * through the search attributes, id breaks ties
+     */
+    private static String toPageQuery(NativeWhere where, List<SortKey> keys, boolean counted) {
+        StringBuilder select = new StringBuilder(PAGE);
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (SortKey key : keys) {
+            String column = key.attribute().getColumn();
+            select.append(", ").append(column);
+            orderBy.append(column).append(key.attribute().isText() ? " COLLATE \"C\"" : "")
+                    .append(key.descending() ? " DESC, " : ", ");
+        }
+        if (counted) {
+            select.append(", count(*) OVER ()");
+        }
+        return select.append(" FROM tbl_user").append(where.sql()).append(orderBy).append("id LIMIT ?").toString();
+    }
+
+    /**
+     * Values of the where clause are sent untyped so PostgreSQL infers the type of each column
+     */
+    private static void bind(PreparedStatement ps, List<Object> args) throws SQLException {
+        for (int i = 0; i < args.size(); i++) {
+            ps.setObject(i + 1, args.get(i), Types.OTHER);
+        }
+    }
+
+    /**
+     * Read a row with its sort keys as Java values ordered like PostgreSQL orders the columns, enums by their
+     * position in the type
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Row toRow(ResultSet rs, List<SortKey> keys, boolean counted) throws SQLException {
+        UserSummary user = new UserSummary(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+        Comparable<?>[] values = new Comparable<?>[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            Class<?> type = keys.get(i).attribute().getJavaType();
+            if (type.isEnum()) {
+                String name = rs.getString(6 + i);
+                values[i] = name == null ? null : Enum.valueOf((Class<Enum>) type, name).ordinal();
+            } else {
+                values[i] = (Comparable<?>) rs.getObject(6 + i);
+            }
+        }
+        return new Row(user, values, counted ? rs.getLong(6 + keys.size()) : 0);
+    }
+
+    /**
+     * Order of the page query: PostgreSQL puts nulls last ascending and first descending, then id
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Row> toComparator(List<SortKey> keys) {
+        Comparator<Row> comparator = (a, b) -> 0;
+        for (int i = 0; i < keys.size(); i++) {
+            int index = i;
+            Comparator<Row> key = Comparator.comparing(row -> (Comparable) row.keys()[index], Comparator.nullsLast(Comparator.naturalOrder()));
+            comparator = comparator.thenComparing(keys.get(i).descending() ? key.reversed() : key);
+        }
+        return comparator.thenComparing(row -> row.user().getId());
+    }
+
+    /**
+     * K-way merge of the sorted pages of the shards, skipping offset rows and taking up to limit rows
+     */
+    private static List<UserSummary> merge(List<List<Row>> pages, Comparator<Row> order, long offset, long limit) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::current, order));
+        for (List<Row> page : pages) {
+            Iterator<Row> rows = page.iterator();
+            if (rows.hasNext()) {
+                heads.add(new Head(rows));
+            }
+        }
+
+        List<UserSummary> users = new ArrayList<>((int) Math.min(limit, 1000));
+        for (long position = 0; position < offset + limit && !heads.isEmpty(); position++) {
+            Head head = heads.poll();
+            if (position >= offset) {
+                users.add(head.current().user());
+            }
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return users;
+    }
+
+    private record SortKey(SearchAttribute attribute, boolean descending) {
+    }
+
+    private record Row(UserSummary user, Comparable<?>[] keys, long total) {
+    }
+
+    /**
+     * Next row of the page of one shard
+     */
+    private static final class Head {
+        private final Iterator<Row> rows;
+        private Row current;
+
+        Head(Iterator<Row> rows) {
+            this.rows = rows;
+            this.current = rows.next();
+        }
+
+        Row current() {
+            return current;
+        }
+
+        boolean advance() {
+            if (!rows.hasNext()) {
+                return false;
+            }
+            current = rows.next();
+            return true;
+        }
+    }
+
+    /**
+     * One database of the sharded storage with the repositories bound to it
+     */
+    private static final class Shard {
+        private final int index;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final UserUpdateRepository updates;
+        private final UserBulkRepository bulk;
+        private final UserTextSearchRepository textSearch;
+        private final LocalSequence userIds;
+        private final LocalSequence addressIds;
+
+        Shard(int index, DataSource dataSource) {
+            this.index = index;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.updates = new UserUpdateRepository(jdbcTemplate);
+            this.bulk = new UserBulkRepository(jdbcTemplate);
+            this.textSearch = new UserTextSearchRepository(jdbcTemplate);
+            this.userIds = new LocalSequence(jdbcTemplate, USER);
+            this.addressIds = new LocalSequence(jdbcTemplate, ADDRESS);
+        }
+    }
+
+    /**
+     * Values of a sequence of a shard handed out ALLOCATION_SIZE per nextval, the way the pooled-lo generator of the
+     * entities reserves them, so user ids stay dense
+     */
+    private static final class LocalSequence {
+        private final JdbcTemplate jdbcTemplate;
+        private final String name;
+        private final Lock lock = new ReentrantLock();
+        private long next;
+        private long limit;
+
+        LocalSequence(JdbcTemplate jdbcTemplate, String name) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.name = name;
+        }
+
+        long next() {
+            lock.lock();
+            try {
+                if (next == limit) {
+                    Long low = jdbcTemplate.queryForObject("SELECT nextval(?::regclass)", Long.class, name);
+                    next = Objects.requireNonNull(low);
+                    limit = next + ALLOCATION_SIZE;
+                }
+                return next++;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.sample.repository;
+
+import com.sample.util.UserStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set-based changes of many users in one statement per chunk of ids. Statements go around Hibernate, callers evict
+ * the changed users from the caches
+ */
+@Component
+@RequiredArgsConstructor
+public class UserBulkRepository {
+
+    private static final String UPDATE_STATUS = """
+            UPDATE tbl_user SET status = ?, updated_at = now(), version = version + 1
+            WHERE id = ANY(?) AND status IS DISTINCT FROM ?
+            RETURNING id""";
+
+    private static final String DELETE_ADDRESSES = "DELETE FROM tbl_address WHERE user_id = ANY(?)";
+    private static final String DELETE_USERS = "DELETE FROM tbl_user WHERE id = ANY(?) RETURNING id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Set the status of users, rows already in that status are not written
+     *
+     * @param ids    user ids
+     * @param status new status
+     * @return ids of the users changed
+     */
+    public List<Long> updateStatus(Collection<Long> ids, UserStatus status) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Long[] array = ids.toArray(Long[]::new);
+        return jdbcTemplate.query(UPDATE_STATUS, ps -> {
+            // untyped so it binds to the enum type of the column
+            ps.setObject(1, status.name(), Types.OTHER);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", array));
+            ps.setObject(3, status.name(), Types.OTHER);
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Delete the addresses of users, before the users themselves
+     *
+     * @param ids user ids
+     * @return number of addresses deleted
+     */
+    public int deleteAddresses(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Long[] array = ids.toArray(Long[]::new);
+        return jdbcTemplate.update(DELETE_ADDRESSES, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", array)));
+    }
+
+    /**
+     * Delete users whose addresses are already deleted
+     *
+     * @param ids user ids
+     * @return ids of the users deleted
+     */
+    public List<Long> deleteUsers(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Long[] array = ids.toArray(Long[]::new);
+        return jdbcTemplate.query(DELETE_USERS, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", array)),
+                (rs, rowNum) -> rs.getLong(1));
+    }
+}
@@ -0,0 +1,111 @@
+package com.sample.repository;
+
+import com.sample.dto.request.UserCreationRequest;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static com.sample.util.Constant.Sequence.*;
+
+@Component
+@RequiredArgsConstructor
+public class UserCopyRepository {
+
+    private static final String COPY_USER = "COPY tbl_user (id, created_at, updated_at, first_name, last_name, date_of_birth, gender, phone, email, username, password, type, status) FROM STDIN WITH (FORMAT csv)";
+    private static final String COPY_ADDRESS = "COPY tbl_address (id, created_at, updated_at, user_id, apartment_number, floor, building, street_number, street, city, country, address_type) FROM STDIN WITH (FORMAT csv)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserTextSearchRepository userTextSearchRepository;
+
+    /**
+     * Load users and their addresses by PostgreSQL COPY, then index them for full-text search. Must be called inside a transaction
+     *
+     * @param users validated users
+     * @return number of users copied
+     */
+    public long copyUsers(List<UserCreationRequest> users) {
+        String now = new Timestamp(System.currentTimeMillis()).toString();
+
+        long[] userIds = allocateIds(USER, users.size());
+        int addressCount = users.stream().mapToInt(u -> u.getAddresses() == null ? 0 : u.getAddresses().size()).sum();
+        long[] addressIds = allocateIds(ADDRESS, addressCount);
+
+        StringBuilder userRows = new StringBuilder();
+        StringBuilder addressRows = new StringBuilder();
+        int a = 0;
+        for (int i = 0; i < users.size(); i++) {
+            UserCreationRequest u = users.get(i);
+            appendRow(userRows, userIds[i], now, now, u.getFirstName(), u.getLastName(), u.getDateOfBirth(), u.getGender(),
+                    u.getPhone(), u.getEmail(), u.getUsername(), u.getPassword(), u.getType(), "none");
+
+            if (u.getAddresses() != null) {
+                for (UserCreationRequest.Address address : u.getAddresses()) {
+                    appendRow(addressRows, addressIds[a++], now, now, userIds[i], address.getApartmentNumber(), address.getFloor(),
+                            address.getBuilding(), address.getStreetNumber(), address.getStreet(), address.getCity(),
+                            address.getCountry(), address.getAddressType());
+                }
+            }
+        }
+
+        long copied = copy(COPY_USER, userRows);
+        if (addressCount > 0) {
+            copy(COPY_ADDRESS, addressRows);
+        }
+        userTextSearchRepository.refreshSearchVectors(userIds);
+        return copied;
+    }
+
+    /**
+     * Reserve ids the same way the pooled-lo generator of the entities does, so COPY and JPA inserts never collide
+     *
+     * @param sequence sequence name
+     * @param count    number of ids
+     * @return ids
+     */
+    private long[] allocateIds(String sequence, int count) {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+
+        int blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        List<Long> lows = jdbcTemplate.queryForList("SELECT nextval(?::regclass) FROM generate_series(1, ?)", Long.class, sequence, blocks);
+        for (int i = 0; i < count; i++) {
+            ids[i] = lows.get(i / ALLOCATION_SIZE) + i % ALLOCATION_SIZE;
+        }
+        return ids;
+    }
+
+    private long copy(String sql, StringBuilder rows) {
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(rows.toString()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Copy data unsuccessful", e);
+            }
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    /**
+     * Append one CSV row, null becomes an unquoted empty field which COPY reads as NULL
+     */
+    private static void appendRow(StringBuilder sb, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            if (values[i] != null) {
+                sb.append('"').append(values[i].toString().replace("\"", "\"\"")).append('"');
+            }
+        }
+        sb.append('\n');
+    }
+}
@@ -0,0 +1,138 @@
+package com.sample.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sample.repository.SearchRepository.NativeWhere;
+import com.sample.repository.criteria.SearchCriteria;
+import com.sample.repository.criteria.UserSearchAttributes;
+import com.sample.util.TotalMode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Writes a page of users as the JSON of UserListResponse straight from the JDBC rows to the response. One generator
+ * writes the whole response and no object is built per row, where the object path holds the page as UserSummary,
+ * UserDetailResponse and UserListResponse before Jackson writes it
+ */
+@Component
+@RequiredArgsConstructor
+public class UserListJsonRepository {
+
+    private static final String PAGE = "SELECT id, first_name, last_name, email, phone, count(*) OVER () FROM tbl_user";
+    private static final String COUNT = "SELECT count(*) FROM tbl_user";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write one page of users matching the criteria and its exact total, the same JSON as the list endpoints.
+     * Nothing is written before the query returns its rows, so a failing query still gets an error response
+     *
+     * @param out      response body
+     * @param pageable includes page, size and sort
+     * @param params   list of filter conditions, empty for all users
+     */
+    @Transactional(readOnly = true)
+    public void writePage(OutputStream out, Pageable pageable, List<SearchCriteria> params) throws IOException {
+        NativeWhere where = SearchRepository.toNativeWhere(params);
+        String sql = PAGE + where.sql() + toOrderBy(pageable.getSort()) + " LIMIT ? OFFSET ?";
+
+        try {
+            jdbcTemplate.query(sql, ps -> {
+                bind(where.args()).setValues(ps);
+                ps.setInt(where.args().size() + 1, pageable.getPageSize());
+                ps.setLong(where.args().size() + 2, pageable.getOffset());
+            }, (ResultSetExtractor<Void>) rs -> {
+                writePage(out, pageable, where, rs);
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writePage(OutputStream out, Pageable pageable, NativeWhere where, ResultSet rs) throws SQLException {
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            // a failure past the first byte must leave the body truncated, not closed into a shorter valid page
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            json.writeStartObject();
+            json.writeNumberField("pageNo", pageable.getPageNumber());
+            json.writeNumberField("pageSize", pageable.getPageSize());
+
+            json.writeArrayFieldStart("users");
+            Long total = writeUsers(json, rs);
+            json.writeEndArray();
+
+            if (total == null) {
+                // Past the last row there is no row to carry the total
+                total = pageable.getOffset() > 0 ? jdbcTemplate.query(COUNT + where.sql(), bind(where.args()), (ResultSetExtractor<Long>) count -> count.next() ? count.getLong(1) : 0L) : 0L;
+            }
+            int totalPage = pageable.getPageSize() == 0 ? 1 : (int) Math.ceil((double) total / pageable.getPageSize());
+            json.writeNumberField("totalPage", totalPage);
+            json.writeStringField("totalMode", TotalMode.exact.name());
+            json.writeNumberField("totalElements", total);
+            json.writeBooleanField("hasNext", pageable.getPageNumber() + 1 < totalPage);
+            json.writeNullField("nextCursor");
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write each row as UserDetailResponse of the list endpoints, firstName holds the full name
+     *
+     * @return total of the count(*) OVER () column, null without rows
+     */
+    private static Long writeUsers(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+        long total = -1;
+        while (rs.next()) {
+            total = rs.getLong(6);
+            json.writeStartObject();
+            json.writeNumberField("id", rs.getLong(1));
+            json.writeStringField("firstName", rs.getString(2) + " " + rs.getString(3));
+            json.writeNullField("lastName");
+            json.writeStringField("phone", rs.getString(5));
+            json.writeStringField("email", rs.getString(4));
+            json.writeEndObject();
+        }
+        return total < 0 ? null : total;
+    }
+
+    /**
+     * Sort properties are mapped to columns through the search attributes, id breaks ties
+     */
+    private static String toOrderBy(Sort sort) {
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (Sort.Order order : sort) {
+            orderBy.append(UserSearchAttributes.get(order.getProperty()).getColumn())
+                    .append(order.isDescending() ? " DESC, " : ", ");
+        }
+        return orderBy.append("id").toString();
+    }
+
+    /**
+     * Values of the where clause are sent untyped so PostgreSQL infers the type of each column
+     */
+    private static PreparedStatementSetter bind(List<Object> args) {
+        return ps -> {
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i), Types.OTHER);
+            }
+        };
+    }
+}
@@ -1,14 +1,35 @@
 package com.sample.repository;
 
 import com.sample.model.UserEntity;
+import com.sample.repository.projection.UserSummary;
+import com.sample.repository.projection.VersionedUserSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Long>, JpaSpecificationExecutor<UserEntity> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     UserEntity findByUsername(String username);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     UserEntity findByEmail(String email);
+
+    @Transactional(readOnly = true)
+    Page<UserSummary> findAllBy(Pageable pageable);
+
+    Optional<VersionedUserSummary> findSummaryById(long id);
+
+    List<VersionedUserSummary> findSummaryByIdIn(Collection<Long> ids);
 }
@@ -0,0 +1,120 @@
+package com.sample.repository;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.repository.keyset.KeysetCursor;
+import com.sample.repository.keyset.KeysetPage;
+import com.sample.repository.projection.UserSummary;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Full-text search of users on tbl_user.search_vector. The vector is maintained by the application, it spans
+ * tbl_address which a generated column cannot read: names weigh A, email B, city and street of the addresses C.
+ * The 'simple' configuration is used, names are not stemmed.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserTextSearchRepository {
+
+    private static final String RANK = "rank";
+    private static final int MAX_TERMS = 10;
+
+    private static final String REFRESH_SEARCH_VECTOR = """
+            UPDATE tbl_user u SET search_vector =
+                setweight(to_tsvector('simple', concat_ws(' ', u.first_name, u.last_name)), 'A')
+                || setweight(to_tsvector('simple', coalesce(u.email, '')), 'B')
+                || setweight(to_tsvector('simple', coalesce((SELECT string_agg(concat_ws(' ', a.city, a.street), ' ')
+                                                             FROM tbl_address a WHERE a.user_id = u.id), '')), 'C')
+            WHERE u.id = ANY(?)""";
+
+    private static final String SEARCH = """
+            SELECT id, first_name, last_name, email, phone, rank FROM (
+                SELECT u.id, u.first_name, u.last_name, u.email, u.phone, ts_rank(u.search_vector, q.query) AS rank
+                FROM tbl_user u, to_tsquery('simple', ?) q(query)
+                WHERE u.search_vector @@ q.query) ranked
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Recompute the search vector of users from their current row and addresses, pending JPA changes must be flushed
+     *
+     * @param ids user ids
+     */
+    public void refreshSearchVectors(long... ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        Long[] boxed = Arrays.stream(ids).boxed().toArray(Long[]::new);
+        jdbcTemplate.update(REFRESH_SEARCH_VECTOR, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", boxed)));
+    }
+
+    /**
+     * Search users by words of their names, email and addresses, best match first. Every word matches as a prefix.
+     * Pages seek on (rank, id) after the cursor instead of skipping rows
+     *
+     * @param text     words to search
+     * @param cursor   token of the previous page, empty for the first page
+     * @param pageSize size of page
+     * @return list of users and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<UserSummary> searchUsers(String text, String cursor, int pageSize) {
+        KeysetCursor after = StringUtils.hasLength(cursor) ? KeysetCursor.decode(cursor) : null;
+        if (after != null && (!RANK.equals(after.getProperty()) || !after.isDescending() || after.getKey() == null)) {
+            throw new InvalidDataException("Cursor does not match the sort order");
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(toPrefixQuery(text));
+        StringBuilder sql = new StringBuilder(SEARCH);
+        if (after != null) {
+            float rank = (float) after.typedKey(Float.class);
+            sql.append("WHERE rank < ? OR rank = ? AND id > ?\n");
+            args.addAll(List.of(rank, rank, after.getId()));
+        }
+        sql.append("ORDER BY rank DESC, id LIMIT ?");
+        args.add(pageSize + 1);
+
+        List<RankedUser> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new RankedUser(
+                new UserSummary(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)), rs.getFloat(6)
+        ), args.toArray());
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            RankedUser last = rows.get(pageSize - 1);
+            nextCursor = KeysetCursor.of(RANK, true, last.user().getId(), last.rank()).encode();
+        }
+        return new KeysetPage<>(rows.stream().map(RankedUser::user).toList(), pageSize, nextCursor);
+    }
+
+    /**
+     * Turn free text into a tsquery of quoted prefix terms joined by AND, so no input is a tsquery syntax error
+     */
+    static String toPrefixQuery(String text) {
+        StringJoiner query = new StringJoiner(" & ");
+        int terms = 0;
+        for (String word : text == null ? new String[0] : text.trim().split("\\s+")) {
+            String term = word.replaceAll("[^\\p{L}\\p{N}@._-]", "");
+            if (!term.isEmpty() && terms++ < MAX_TERMS) {
+                query.add("'" + term + "':*");
+            }
+        }
+        if (terms == 0) {
+            throw new InvalidDataException("Missing search text");
+        }
+        return query.toString();
+    }
+
+    private record RankedUser(UserSummary user, float rank) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.sample.repository;
+
+import com.sample.dto.request.UserUpdateRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partial updates of a user, the statement lists only the columns being changed. It goes around Hibernate,
+ * callers evict the user from the caches
+ */
+@Component
+@RequiredArgsConstructor
+public class UserUpdateRepository {
+
+    private static final Set<String> SEARCH_VECTOR_COLUMNS = Set.of("first_name", "last_name", "email");
+
+    // A null value keeps the column as it is, enum names are cast to the types of the columns
+    private static final String UPDATE_BATCH = """
+            UPDATE tbl_user u SET
+                first_name = coalesce(v.first_name, u.first_name),
+                last_name = coalesce(v.last_name, u.last_name),
+                phone = coalesce(v.phone, u.phone),
+                email = coalesce(v.email, u.email),
+                password = coalesce(v.password, u.password),
+                status = coalesce(v.status::userstatus, u.status),
+                type = coalesce(v.type::usertype, u.type),
+                gender = coalesce(v.gender::gender, u.gender),
+                updated_at = now(),
+                version = u.version + 1
+            FROM unnest(?::int8[], ?::int8[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+                AS v(id, version, first_name, last_name, phone, email, password, status, type, gender)
+            WHERE u.id = v.id AND (v.version IS NULL OR u.version = v.version)
+            RETURNING u.id, u.version""";
+
+    private static final String FIND_IDS = "SELECT id FROM tbl_user WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Columns written by an update request, only its non-null fields
+     *
+     * @param req partial update
+     * @return column names to values in the order of the request fields
+     */
+    public static Map<String, Object> toColumns(UserUpdateRequest req) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        putIfNotNull(columns, "first_name", req.getFirstName());
+        putIfNotNull(columns, "last_name", req.getLastName());
+        putIfNotNull(columns, "phone", req.getPhone());
+        putIfNotNull(columns, "email", req.getEmail());
+        putIfNotNull(columns, "password", req.getPassword());
+        putIfNotNull(columns, "status", req.getStatus() == null ? null : req.getStatus().name());
+        putIfNotNull(columns, "type", req.getUserType() == null ? null : req.getUserType().name());
+        putIfNotNull(columns, "gender", req.getGender());
+        return columns;
+    }
+
+    /**
+     * @param columns columns written by an update
+     * @return whether the search vector must be refreshed after the update
+     */
+    public static boolean changesSearchVector(Collection<String> columns) {
+        return columns.stream().anyMatch(SEARCH_VECTOR_COLUMNS::contains);
+    }
+
+    /**
+     * Write some columns of a user and bump its version. With an expected version the row is only written while
+     * it still has that version, the check and the write are one statement so no lock is held in between
+     *
+     * @param id      user id
+     * @param version expected version, null to update any version
+     * @param columns column names to values, names are trusted and values are sent untyped
+     * @return new version, null when no row matched
+     */
+    public Long updateColumns(long id, Long version, Map<String, Object> columns) {
+        StringBuilder sql = new StringBuilder("UPDATE tbl_user SET ");
+        List<Object> args = new ArrayList<>(columns.size() + 2);
+        columns.forEach((column, value) -> {
+            sql.append(column).append(" = ?, ");
+            args.add(value);
+        });
+        sql.append("updated_at = now(), version = version + 1 WHERE id = ?");
+        args.add(id);
+        if (version != null) {
+            sql.append(" AND version = ?");
+            args.add(version);
+        }
+        sql.append(" RETURNING version");
+
+        return jdbcTemplate.query(sql.toString(), ps -> {
+            for (int i = 0; i < args.size(); i++) {
+                Object arg = args.get(i);
+                if (arg instanceof Long number) {
+                    ps.setLong(i + 1, number);
+                } else {
+                    // untyped so enum columns take their names
+                    ps.setObject(i + 1, arg, Types.OTHER);
+                }
+            }
+        }, (ResultSetExtractor<Long>) rs -> rs.next() ? rs.getLong(1) : null);
+    }
+
+    /**
+     * Apply many partial updates in one statement, each request is a row of arrays joined to tbl_user so the
+     * statement text is the same whatever the fields sent. Requests must have distinct ids
+     *
+     * @param requests partial updates with their expected versions, if any
+     * @return new version by id of the users updated, the others are unknown or had another version
+     */
+    public Map<Long, Long> updateBatch(List<UserUpdateRequest> requests) {
+        int size = requests.size();
+        Long[] ids = new Long[size];
+        Long[] versions = new Long[size];
+        String[][] values = new String[8][size];
+        for (int i = 0; i < size; i++) {
+            UserUpdateRequest req = requests.get(i);
+            ids[i] = req.getId();
+            versions[i] = req.getVersion();
+            values[0][i] = req.getFirstName();
+            values[1][i] = req.getLastName();
+            values[2][i] = req.getPhone();
+            values[3][i] = req.getEmail();
+            values[4][i] = req.getPassword();
+            values[5][i] = req.getStatus() == null ? null : req.getStatus().name();
+            values[6][i] = req.getUserType() == null ? null : req.getUserType().name();
+            values[7][i] = req.getGender();
+        }
+
+        Map<Long, Long> updated = new HashMap<>(size * 2);
+        jdbcTemplate.query(UPDATE_BATCH, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("bigint", ids));
+            ps.setArray(2, connection.createArrayOf("bigint", versions));
+            for (int column = 0; column < values.length; column++) {
+                ps.setArray(column + 3, connection.createArrayOf("text", values[column]));
+            }
+        }, (RowCallbackHandler) rs -> updated.put(rs.getLong(1), rs.getLong(2)));
+        return updated;
+    }
+
+    /**
+     * @param ids user ids
+     * @return the ids of existing users
+     */
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Long[] array = ids.toArray(Long[]::new);
+        return new HashSet<>(jdbcTemplate.query(FIND_IDS, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", array)),
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+
+    private static void putIfNotNull(Map<String, Object> columns, String column, Object value) {
+        if (value != null) {
+            columns.put(column, value);
+        }
+    }
+}
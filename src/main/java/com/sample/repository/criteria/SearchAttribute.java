@@ -0,0 +1,57 @@
+package com.sample.repository.criteria;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.SearchOperation;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A searchable attribute of an entity: its column, Java type, the operations it supports and how a request value
+ * becomes a value of that type
+ */
+@Getter
+@AllArgsConstructor
+public class SearchAttribute {
+
+    private final String name;
+    private final String column;
+    private final Class<?> javaType;
+    private final Set<SearchOperation> operations;
+    private final boolean caseInsensitive;
+    private final Function<String, Object> coercer;
+
+    public boolean isText() {
+        return javaType == String.class;
+    }
+
+    /**
+     * Reject an operation the attribute does not support
+     *
+     * @param operation search operation
+     */
+    public void check(SearchOperation operation) {
+        if (operation == null || !operations.contains(operation)) {
+            throw new InvalidDataException("Operation " + operation + " is not supported by search key " + name);
+        }
+    }
+
+    /**
+     * Convert a request value to the Java type of the attribute, typed values are returned as they are
+     *
+     * @param value value of the request
+     * @return typed value
+     */
+    public Object coerce(Object value) {
+        if (value == null || javaType.isInstance(value)) {
+            return value;
+        }
+        try {
+            return coercer.apply(value.toString());
+        } catch (RuntimeException e) {
+            throw new InvalidDataException("Invalid value of search key " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.sample.repository.criteria;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.SearchOperation;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+
+import java.util.Locale;
+
+/**
+ * Shapes text pattern predicates so the indexes of initdb.sql can serve them: trigram GIN indexes for contains and
+ * suffix matches, text_pattern_ops b-trees for prefix matches.
+ * <p>
+ * Case-insensitive attributes are matched as lower(column) LIKE pattern, the expression both indexes are built on.
+ * ILIKE is not used there, a b-tree cannot serve it. An unanchored pattern needs a literal run of at least
+ * {@link #MIN_PATTERN_LENGTH} characters to be served by the trigram index, a shorter one has no trigram to look up.
+ * Such a pattern is matched as column ILIKE pattern instead, no index is built on that expression and the table is
+ * scanned rather than the whole index.
+ */
+public final class TextSearchPlanner {
+
+    static final int MIN_PATTERN_LENGTH = 3;
+
+    private static final char ESCAPE = '\\';
+
+    private TextSearchPlanner() {
+    }
+
+    /**
+     * Build the pattern predicate of a text attribute
+     *
+     * @param builder   criteria builder
+     * @param path      path of the attribute
+     * @param attribute text attribute
+     * @param operation LIKE, STARTS_WITH, ENDS_WITH or CONTAINS
+     * @param value     value of the request, a raw pattern for LIKE
+     * @return predicate
+     */
+    public static Predicate predicate(CriteriaBuilder builder, Path<String> path, SearchAttribute attribute, SearchOperation operation, String value) {
+        String pattern = pattern(attribute, operation, value);
+        if (attribute.isCaseInsensitive() && !isIndexable(pattern)) {
+            return ((HibernateCriteriaBuilder) builder).ilike(path, pattern, ESCAPE);
+        }
+        Expression<String> expression = attribute.isCaseInsensitive() ? builder.lower(path) : path;
+        return builder.like(expression, pattern, ESCAPE);
+    }
+
+    /**
+     * Native SQL of the pattern predicate
+     *
+     * @param attribute text attribute
+     * @param pattern   pattern of {@link #pattern}, the parameter
+     * @return condition with one parameter
+     */
+    public static String condition(SearchAttribute attribute, String pattern) {
+        String column = attribute.getColumn();
+        if (attribute.isCaseInsensitive() && !isIndexable(pattern)) {
+            return column + " ILIKE ?";
+        }
+        return (attribute.isCaseInsensitive() ? "lower(" + column + ")" : column) + " LIKE ?";
+    }
+
+    /**
+     * LIKE pattern of a request value, wildcards of the value are escaped except for the raw LIKE operation
+     *
+     * @param attribute text attribute
+     * @param operation LIKE, STARTS_WITH, ENDS_WITH or CONTAINS
+     * @param value     value of the request
+     * @return pattern, folded to lower case for case-insensitive attributes
+     */
+    public static String pattern(SearchAttribute attribute, SearchOperation operation, String value) {
+        String folded = attribute.isCaseInsensitive() ? value.toLowerCase(Locale.ROOT) : value;
+        return switch (operation) {
+            case LIKE -> folded;
+            case STARTS_WITH -> escape(folded) + "%";
+            case ENDS_WITH -> "%" + escape(folded);
+            case CONTAINS -> "%" + escape(folded) + "%";
+            default -> throw new InvalidDataException("Operation " + operation + " is not a pattern match");
+        };
+    }
+
+    /**
+     * A pattern anchored on a literal prefix is served by the b-tree, any other needs a literal run a trigram can be taken from
+     */
+    static boolean isIndexable(String pattern) {
+        if (!pattern.isEmpty() && pattern.charAt(0) != '%' && pattern.charAt(0) != '_') {
+            return true;
+        }
+        int run = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '%' || c == '_') {
+                run = 0;
+                continue;
+            }
+            if (c == ESCAPE) {
+                i++;
+            }
+            if (++run >= MIN_PATTERN_LENGTH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                escaped.append(ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
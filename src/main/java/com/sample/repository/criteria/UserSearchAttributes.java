@@ -0,0 +1,122 @@
+package com.sample.repository.criteria;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.model.UserEntity;
+import com.sample.util.SearchOperation;
+import jakarta.persistence.Column;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.*;
+
+import static com.sample.util.SearchOperation.*;
+
+/**
+ * Searchable attributes of UserEntity, built once from its mapped columns. Search keys are checked and values are
+ * typed here before any query is built, so predicates bind parameters of the column type and can use its index
+ */
+public final class UserSearchAttributes {
+
+    private static final Set<String> NOT_SEARCHABLE = Set.of("password");
+    // Pattern matches fold case on the columns indexed on lower(column) in initdb.sql
+    private static final Set<String> CASE_INSENSITIVE = Set.of("firstName", "lastName", "email");
+    private static final Set<SearchOperation> TEXT_OPERATIONS = EnumSet.allOf(SearchOperation.class);
+    private static final Set<SearchOperation> ORDERED_OPERATIONS = EnumSet.of(EQUALITY, NEGATION, GREATER_THAN, LESS_THAN);
+    private static final Set<SearchOperation> ENUM_OPERATIONS = EnumSet.of(EQUALITY, NEGATION);
+
+    private static final Map<String, SearchAttribute> ATTRIBUTES = build();
+
+    private UserSearchAttributes() {
+    }
+
+    /**
+     * Get a searchable attribute
+     *
+     * @param key search key
+     * @return attribute
+     */
+    public static SearchAttribute get(String key) {
+        SearchAttribute attribute = ATTRIBUTES.get(key);
+        if (attribute == null) {
+            throw new InvalidDataException("Invalid search key " + key);
+        }
+        return attribute;
+    }
+
+    /**
+     * Check and type one criterion of the criteria search
+     *
+     * @param key       search key
+     * @param operation one of : &lt; &gt;
+     * @param value     value of the request
+     * @return criterion with a typed value
+     */
+    public static SearchCriteria criteria(String key, String operation, String value) {
+        SearchAttribute attribute = get(key);
+        attribute.check(toOperation(attribute, operation));
+        return new SearchCriteria(key, operation, attribute.isText() ? value : attribute.coerce(value));
+    }
+
+    /**
+     * Map an operator of the criteria search, ':' is a contains match on text and an equality otherwise
+     */
+    static SearchOperation toOperation(SearchAttribute attribute, String operation) {
+        return switch (operation) {
+            case ">" -> GREATER_THAN;
+            case "<" -> LESS_THAN;
+            case ":" -> attribute.isText() ? CONTAINS : EQUALITY;
+            default -> null;
+        };
+    }
+
+    private static Map<String, SearchAttribute> build() {
+        Map<String, SearchAttribute> attributes = new HashMap<>();
+        for (Class<?> type = UserEntity.class; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Column column = field.getAnnotation(Column.class);
+                if (column == null || Modifier.isStatic(field.getModifiers()) || NOT_SEARCHABLE.contains(field.getName())) {
+                    continue;
+                }
+                attributes.put(field.getName(), attribute(field.getName(), column.name(), field.getType()));
+            }
+        }
+        return Map.copyOf(attributes);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static SearchAttribute attribute(String name, String column, Class<?> javaType) {
+        if (javaType == String.class) {
+            return new SearchAttribute(name, column, javaType, TEXT_OPERATIONS, CASE_INSENSITIVE.contains(name), v -> v);
+        }
+        if (javaType.isEnum()) {
+            return new SearchAttribute(name, column, javaType, ENUM_OPERATIONS, false, v -> Enum.valueOf((Class<Enum>) javaType, v));
+        }
+        if (javaType == Long.class || javaType == long.class) {
+            return new SearchAttribute(name, column, javaType, ORDERED_OPERATIONS, false, Long::valueOf);
+        }
+        if (javaType == Integer.class || javaType == int.class) {
+            return new SearchAttribute(name, column, javaType, ORDERED_OPERATIONS, false, Integer::valueOf);
+        }
+        if (Date.class.isAssignableFrom(javaType)) {
+            return new SearchAttribute(name, column, javaType, ORDERED_OPERATIONS, false, UserSearchAttributes::toTimestamp);
+        }
+        throw new IllegalStateException("Unsupported search attribute " + name + " of " + javaType);
+    }
+
+    /**
+     * Accept a date, a local date time or a date time with offset, all ISO-8601
+     */
+    private static Timestamp toTimestamp(String value) {
+        if (value.length() == 10) {
+            return Timestamp.valueOf(LocalDate.parse(value).atStartOfDay());
+        }
+        if (value.endsWith("Z") || value.lastIndexOf('+') > 10 || value.lastIndexOf('-') > 10) {
+            return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+        }
+        return Timestamp.valueOf(LocalDateTime.parse(value));
+    }
+}
@@ -1,6 +1,8 @@
 package com.sample.repository.criteria;
 
+import com.sample.util.SearchOperation;
 import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.AllArgsConstructor;
@@ -21,20 +23,25 @@ public class UserSearchQueryCriteriaConsumer implements Consumer<SearchCriteria>
     private Root r;
 
     @Override
+    @SuppressWarnings("unchecked")
     public void accept(SearchCriteria param) {
+        SearchAttribute attribute = UserSearchAttributes.get(param.getKey());
+        Path<Comparable<Object>> path = r.get(attribute.getName());
+        Object value = attribute.coerce(param.getValue());
+
         if (param.getOperation().equalsIgnoreCase(">")) {
             predicate = builder.and(predicate, builder
-                    .greaterThanOrEqualTo(r.get(param.getKey()), param.getValue().toString()));
+                    .greaterThanOrEqualTo(path, (Comparable<Object>) value));
         } else if (param.getOperation().equalsIgnoreCase("<")) {
             predicate = builder.and(predicate, builder.lessThanOrEqualTo(
-                    r.get(param.getKey()), param.getValue().toString()));
+                    path, (Comparable<Object>) value));
         } else if (param.getOperation().equalsIgnoreCase(":")) {
-            if (r.get(param.getKey()).getJavaType() == String.class) {
-                predicate = builder.and(predicate, builder.like(
-                        r.get(param.getKey()), "%" + param.getValue() + "%"));
+            if (attribute.isText()) {
+                predicate = builder.and(predicate, TextSearchPlanner.predicate(
+                        builder, r.get(attribute.getName()), attribute, SearchOperation.CONTAINS, value.toString()));
             } else {
                 predicate = builder.and(predicate, builder.equal(
-                        r.get(param.getKey()), param.getValue()));
+                        path, value));
             }
         }
     }
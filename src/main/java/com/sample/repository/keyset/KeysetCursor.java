@@ -0,0 +1,88 @@
+package com.sample.repository.keyset;
+
+import com.sample.exception.InvalidDataException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position of the last row of a keyset page: sort property, direction, sort key and id of that row.
+ * Clients only see it as an opaque token.
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "\u0000";
+
+    private String property;
+    private boolean descending;
+    private long id;
+    private String key;
+
+    public static KeysetCursor of(String property, boolean descending, long id, Object key) {
+        String value = null;
+        if (key instanceof Date date) {
+            // ISO instant keeps the microseconds of timestamp columns, milliseconds would skip or repeat rows
+            value = date.toInstant().toString();
+        } else if (key instanceof Enum<?> e) {
+            value = e.name();
+        } else if (key != null) {
+            value = key.toString();
+        }
+        return new KeysetCursor(property, descending, id, value);
+    }
+
+    public String encode() {
+        String raw = String.join(SEPARATOR, property, descending ? "desc" : "asc", String.valueOf(id));
+        if (key != null) {
+            raw = raw + SEPARATOR + key;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), UTF_8).split(SEPARATOR, 4);
+            return new KeysetCursor(parts[0], "desc".equals(parts[1]), Long.parseLong(parts[2]), parts.length > 3 ? parts[3] : null);
+        } catch (RuntimeException e) {
+            throw new InvalidDataException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Convert the sort key back to the Java type of the sort property
+     *
+     * @param type Java type of the sort property
+     * @return typed sort key
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Object typedKey(Class<?> type) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            if (Date.class.isAssignableFrom(type)) {
+                return Timestamp.from(Instant.parse(key));
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<Enum>) type, key);
+            } else if (type == Long.class) {
+                return Long.valueOf(key);
+            } else if (type == Integer.class) {
+                return Integer.valueOf(key);
+            } else if (type == Float.class) {
+                return Float.valueOf(key);
+            }
+            return key;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidDataException("Invalid cursor");
+        }
+    }
+}
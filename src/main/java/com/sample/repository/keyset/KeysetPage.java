@@ -0,0 +1,17 @@
+package com.sample.repository.keyset;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One keyset page, nextCursor is null on the last page
+ */
+@Getter
+@AllArgsConstructor
+public class KeysetPage<T> {
+    private List<T> content;
+    private int pageSize;
+    private String nextCursor;
+}
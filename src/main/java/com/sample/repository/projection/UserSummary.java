@@ -0,0 +1,17 @@
+package com.sample.repository.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Columns of tbl_user needed by the list and search endpoints, selected without loading UserEntity
+ */
+@Getter
+@AllArgsConstructor
+public class UserSummary {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+}
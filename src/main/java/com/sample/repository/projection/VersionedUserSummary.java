@@ -0,0 +1,16 @@
+package com.sample.repository.projection;
+
+import lombok.Getter;
+
+/**
+ * UserSummary of a single user with the version a partial update must match
+ */
+@Getter
+public class VersionedUserSummary extends UserSummary {
+    private final Long version;
+
+    public VersionedUserSummary(Long id, String firstName, String lastName, String email, String phone, Long version) {
+        super(id, firstName, lastName, email, phone);
+        this.version = version;
+    }
+}
@@ -0,0 +1,33 @@
+package com.sample.repository.specification;
+
+import com.sample.model.UserEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Parsed filter expression, immutable so a parsed tree can be shared between requests
+ */
+public sealed interface SearchExpression {
+
+    Specification<UserEntity> toSpecification();
+
+    record Criterion(SpecSearchCriteria criteria) implements SearchExpression {
+        @Override
+        public Specification<UserEntity> toSpecification() {
+            return new UserSpecification(criteria);
+        }
+    }
+
+    record And(SearchExpression left, SearchExpression right) implements SearchExpression {
+        @Override
+        public Specification<UserEntity> toSpecification() {
+            return Specification.where(left.toSpecification()).and(right.toSpecification());
+        }
+    }
+
+    record Or(SearchExpression left, SearchExpression right) implements SearchExpression {
+        @Override
+        public Specification<UserEntity> toSpecification() {
+            return Specification.where(left.toSpecification()).or(right.toSpecification());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.sample.repository.specification;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sample.exception.InvalidDataException;
+import com.sample.model.UserEntity;
+import com.sample.repository.criteria.SearchAttribute;
+import com.sample.repository.criteria.UserSearchAttributes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static com.sample.util.SearchOperation.*;
+
+/**
+ * Parse filter expressions such as {@code (firstName:*jo* OR lastName:smith) AND status:active}.
+ * AND binds tighter than OR, values with spaces or parentheses are written in double quotes.
+ * Keys, operations and values are checked against {@link UserSearchAttributes} while parsing.
+ * Parsed trees are kept in a bounded cache keyed by the normalized expression
+ */
+@Component
+public class SearchExpressionParser {
+
+    private static final int MAX_TOKENS = 200;
+    private static final Pattern CRITERION = Pattern.compile("(\\w+?)("
+            + Arrays.stream(SIMPLE_OPERATION_SET).map(Pattern::quote).collect(Collectors.joining("|"))
+            + ")(\\*?)(.*?)(\\*?)");
+
+    private final Cache<String, SearchExpression> expressions;
+
+    public SearchExpressionParser(@Value("${user.search.expression-cache-size:1000}") long cacheSize) {
+        this.expressions = Caffeine.newBuilder().maximumSize(cacheSize).build();
+    }
+
+    /**
+     * Parse an expression, or take the tree parsed before for the same normalized expression
+     *
+     * @param expression filter expression
+     * @return tree of the expression
+     */
+    public SearchExpression parse(String expression) {
+        List<String> tokens = tokenize(expression);
+        return expressions.get(String.join(" ", tokens), key -> new Parser(tokens).parse());
+    }
+
+    /**
+     * Parse the search params of a specification search, each param is an expression and all of them must match
+     *
+     * @param search filter expressions
+     * @return specification, null when there is no expression
+     */
+    public Specification<UserEntity> parseAll(String... search) {
+        Specification<UserEntity> result = null;
+        for (String s : search == null ? new String[0] : search) {
+            Specification<UserEntity> specification = parse(s).toSpecification();
+            result = result == null ? Specification.where(specification) : result.and(specification);
+        }
+        return result;
+    }
+
+    /**
+     * Parse an expression without the cache
+     */
+    static SearchExpression compile(String expression) {
+        return new Parser(tokenize(expression)).parse();
+    }
+
+    /**
+     * Split on whitespace and parentheses outside of double quotes, operators AND/OR are upper-cased
+     */
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                token.append(c);
+            } else if (quoted) {
+                token.append(c);
+            } else if (Character.isWhitespace(c) || c == '(' || c == ')') {
+                addToken(tokens, token);
+                if (!Character.isWhitespace(c)) {
+                    tokens.add(String.valueOf(c));
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidDataException("Unbalanced quote in search expression");
+        }
+        addToken(tokens, token);
+
+        if (tokens.isEmpty()) {
+            throw new InvalidDataException("Search expression is empty");
+        }
+        if (tokens.size() > MAX_TOKENS) {
+            throw new InvalidDataException("Search expression is too long");
+        }
+        return tokens;
+    }
+
+    private static void addToken(List<String> tokens, StringBuilder token) {
+        if (token.isEmpty()) {
+            return;
+        }
+        String value = token.toString();
+        if (value.equalsIgnoreCase(AND_OPERATOR) || value.equalsIgnoreCase(OR_OPERATOR)) {
+            value = value.toUpperCase();
+        }
+        tokens.add(value);
+        token.setLength(0);
+    }
+
+    /**
+     * Recursive descent: or := and (OR and)*, and := factor (AND factor)*, factor := ( or ) | criterion
+     */
+    private static final class Parser {
+        private final List<String> tokens;
+        private int position;
+
+        Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        SearchExpression parse() {
+            SearchExpression expression = or();
+            if (position < tokens.size()) {
+                throw new InvalidDataException("Unexpected '" + tokens.get(position) + "' in search expression");
+            }
+            return expression;
+        }
+
+        private SearchExpression or() {
+            SearchExpression left = and();
+            while (accept(OR_OPERATOR)) {
+                left = new SearchExpression.Or(left, and());
+            }
+            return left;
+        }
+
+        private SearchExpression and() {
+            SearchExpression left = factor();
+            while (accept(AND_OPERATOR)) {
+                left = new SearchExpression.And(left, factor());
+            }
+            return left;
+        }
+
+        private SearchExpression factor() {
+            if (position >= tokens.size()) {
+                throw new InvalidDataException("Unexpected end of search expression");
+            }
+            String token = tokens.get(position++);
+            if (token.equals(LEFT_PARENTHESIS)) {
+                SearchExpression expression = or();
+                if (!accept(RIGHT_PARENTHESIS)) {
+                    throw new InvalidDataException("Missing ')' in search expression");
+                }
+                return expression;
+            }
+            return criterion(token);
+        }
+
+        private boolean accept(String token) {
+            if (position < tokens.size() && tokens.get(position).equals(token)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private static SearchExpression criterion(String token) {
+            Matcher matcher = CRITERION.matcher(token);
+            if (!matcher.matches()) {
+                throw new InvalidDataException("Invalid search criterion '" + token + "'");
+            }
+            String value = matcher.group(4);
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.isEmpty()) {
+                throw new InvalidDataException("Missing value of search criterion '" + token + "'");
+            }
+
+            SpecSearchCriteria criteria = new SpecSearchCriteria(matcher.group(1), matcher.group(2), matcher.group(3), value, matcher.group(5));
+            SearchAttribute attribute = UserSearchAttributes.get(criteria.getKey());
+            attribute.check(criteria.getOperation());
+            if (!attribute.isText()) {
+                criteria.setValue(attribute.coerce(value));
+            }
+            return new SearchExpression.Criterion(criteria);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.sample.repository.specification;
 
 import com.sample.model.UserEntity;
+import com.sample.repository.criteria.SearchAttribute;
+import com.sample.repository.criteria.TextSearchPlanner;
+import com.sample.repository.criteria.UserSearchAttributes;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.AllArgsConstructor;
@@ -18,16 +22,19 @@ public class UserSpecification implements Specification<UserEntity> {
     private SpecSearchCriteria criteria;
 
     @Override
+    @SuppressWarnings("unchecked")
     public Predicate toPredicate(@NonNull final Root<UserEntity> root, @NonNull final CriteriaQuery<?> query, @NonNull final CriteriaBuilder builder) {
+        SearchAttribute attribute = UserSearchAttributes.get(criteria.getKey());
+        Path<Comparable<Object>> path = root.get(attribute.getName());
+        Object value = criteria.getValue();
+
         return switch (criteria.getOperation()) {
-            case EQUALITY -> builder.equal(root.get(criteria.getKey()), criteria.getValue());
-            case NEGATION -> builder.notEqual(root.get(criteria.getKey()), criteria.getValue());
-            case GREATER_THAN -> builder.greaterThan(root.get(criteria.getKey()), criteria.getValue().toString());
-            case LESS_THAN -> builder.lessThan(root.get(criteria.getKey()), criteria.getValue().toString());
-            case LIKE -> builder.like(root.get(criteria.getKey()), criteria.getValue().toString());
-            case STARTS_WITH -> builder.like(root.get(criteria.getKey()), criteria.getValue() + "%");
-            case ENDS_WITH -> builder.like(root.get(criteria.getKey()), "%" + criteria.getValue());
-            case CONTAINS -> builder.like(root.get(criteria.getKey()), "%" + criteria.getValue() + "%");
+            case EQUALITY -> builder.equal(path, attribute.coerce(value));
+            case NEGATION -> builder.notEqual(path, attribute.coerce(value));
+            case GREATER_THAN -> builder.greaterThan(path, (Comparable<Object>) attribute.coerce(value));
+            case LESS_THAN -> builder.lessThan(path, (Comparable<Object>) attribute.coerce(value));
+            case LIKE, STARTS_WITH, ENDS_WITH, CONTAINS ->
+                    TextSearchPlanner.predicate(builder, root.get(attribute.getName()), attribute, criteria.getOperation(), value.toString());
         };
     }
 }
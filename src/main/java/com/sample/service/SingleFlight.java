@@ -0,0 +1,112 @@
+package com.sample.service;
+
+import com.sample.config.ReadRouting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets identical concurrent reads share one execution. The first call of a key runs, calls arriving with the same
+ * key while it is in flight wait for it and get its result or its exception. Nothing is kept once the call is done,
+ * this is not a cache. Calls are counted as user_single_flight_calls_total by endpoint and outcome: executed,
+ * coalesced, or bypassed when the key table is full. Reads pinned to the primary never join a read that may run on
+ * the replica, nor the other way round
+ */
+@Component
+@Slf4j(topic = "USER-SINGLE-FLIGHT")
+@RequiredArgsConstructor
+public class SingleFlight {
+
+    public static final String USER_DETAIL = "user-detail";
+    public static final String USER_LIST = "user-list";
+    public static final String CRITERIA_SEARCH = "criteria-search";
+    public static final String SPECIFICATION_SEARCH = "specification-search";
+    public static final String TEXT_SEARCH = "text-search";
+
+    private static final String CALLS = "user.single.flight.calls";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${user.single-flight.endpoints:user-detail,user-list,criteria-search,specification-search,text-search}")
+    private Set<String> endpoints;
+
+    @Value("${user.single-flight.max-keys:10000}")
+    private int maxKeys;
+
+    /**
+     * Run a read, or wait for the identical read in flight
+     *
+     * @param endpoint name of the read, it shares only when listed in user.single-flight.endpoints
+     * @param key      normalized arguments of the read, equal keys must give equal results
+     * @param call     the read
+     * @return result of the read
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String endpoint, Object key, Supplier<T> call) {
+        if (!endpoints.contains(endpoint)) {
+            return call.get();
+        }
+
+        Key flight = new Key(endpoint, key, ReadRouting.isPinned());
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        boolean full = inFlight.size() >= maxKeys;
+        CompletableFuture<Object> running = full ? inFlight.get(flight) : inFlight.putIfAbsent(flight, mine);
+        if (running != null) {
+            count(endpoint, "coalesced");
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        if (full) {
+            count(endpoint, "bypassed");
+            return call.get();
+        }
+
+        count(endpoint, "executed");
+        try {
+            T result = call.get();
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // errors too, the joined reads would otherwise wait forever
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flight, mine);
+        }
+    }
+
+    @PostConstruct
+    void registerGauge() {
+        Gauge.builder("user.single.flight.keys", inFlight, Map::size)
+                .description("Reads in flight that identical reads can join")
+                .register(meterRegistry);
+    }
+
+    private void count(String endpoint, String outcome) {
+        Counter.builder(CALLS)
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record Key(String endpoint, Object value, boolean pinned) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.sample.service;
+
+import com.sample.repository.UserRepository;
+import com.sample.repository.projection.VersionedUserSummary;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent single-user lookups into one query. The first lookup of a batch waits for the batch window,
+ * lookups arriving meanwhile join the batch, then the first one loads every id of the batch with one IN query on
+ * its own thread. A batch reaching the maximum size is loaded at once by the lookup that filled it. The batch is
+ * guarded by a lock rather than a monitor, a virtual thread waiting for it is not pinned to its carrier
+ */
+@Component
+@Slf4j(topic = "USER-BATCH-LOADER")
+@RequiredArgsConstructor
+public class UserBatchLoader {
+
+    private final UserRepository userRepository;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Long, CompletableFuture<VersionedUserSummary>> batch = new HashMap<>();
+
+    @Getter
+    @Value("${user.batch-loader.enabled:false}")
+    private boolean enabled;
+
+    @Value("${user.batch-loader.window:2ms}")
+    private Duration window;
+
+    @Value("${user.batch-loader.max-batch-size:100}")
+    private int maxBatchSize;
+
+    /**
+     * Load a user together with the other users looked up within the batch window
+     *
+     * @param id user id
+     * @return the user, empty when it does not exist
+     */
+    public Optional<VersionedUserSummary> load(long id) {
+        CompletableFuture<VersionedUserSummary> user;
+        Map<Long, CompletableFuture<VersionedUserSummary>> joined;
+        Map<Long, CompletableFuture<VersionedUserSummary>> full = null;
+        boolean leader;
+        lock.lock();
+        try {
+            joined = batch;
+            leader = joined.isEmpty();
+            user = joined.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (joined.size() >= maxBatchSize) {
+                full = take(joined);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) {
+            run(full);
+        } else if (leader) {
+            LockSupport.parkNanos(window.toNanos());
+            Map<Long, CompletableFuture<VersionedUserSummary>> due;
+            lock.lock();
+            try {
+                due = take(joined);
+            } finally {
+                lock.unlock();
+            }
+            if (due != null) {
+                run(due);
+            }
+        }
+
+        try {
+            return Optional.ofNullable(user.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Detach a batch unless it has been taken already, must hold the lock
+     */
+    private Map<Long, CompletableFuture<VersionedUserSummary>> take(Map<Long, CompletableFuture<VersionedUserSummary>> joined) {
+        if (batch != joined) {
+            return null;
+        }
+        batch = new HashMap<>();
+        return joined;
+    }
+
+    private void run(Map<Long, CompletableFuture<VersionedUserSummary>> due) {
+        log.debug("Loading a batch of {} users", due.size());
+        try {
+            Map<Long, VersionedUserSummary> users = userRepository.findSummaryByIdIn(due.keySet()).stream()
+                    .collect(Collectors.toMap(VersionedUserSummary::getId, Function.identity()));
+            due.forEach((id, user) -> user.complete(users.get(id)));
+        } catch (Throwable e) {
+            // errors too, the lookups of the batch would otherwise wait forever
+            due.values().forEach(user -> user.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.sample.service;
+
+import com.sample.dto.request.UserUpdateRequest;
+import com.sample.dto.response.UserBatchUpdateResponse;
+import com.sample.dto.response.UserBatchUpdateResponse.Item;
+import com.sample.dto.response.UserBatchUpdateResponse.Result;
+import com.sample.repository.UserTextSearchRepository;
+import com.sample.repository.UserUpdateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@Slf4j(topic = "USER-BATCH-SERVICE")
+@RequiredArgsConstructor
+public class UserBatchService {
+
+    private final UserUpdateRepository userUpdateRepository;
+    private final UserTextSearchRepository userTextSearchRepository;
+    private final UserCache userCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${user.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Apply partial updates of many users, one UPDATE statement and one transaction per chunk of updates. Each
+     * update behaves as PUT /user/upd: only its non-null fields are written and a stale version is a conflict.
+     * A failing chunk is rolled back and its updates are rejected, the other chunks still apply
+     *
+     * @param requests partial updates, ids must be distinct
+     * @return result of every update in the order of the request
+     */
+    public UserBatchUpdateResponse updateUsers(List<UserUpdateRequest> requests) {
+        log.info("Updating {} users ...", requests.size());
+
+        Item[] items = new Item[requests.size()];
+        List<Integer> accepted = new ArrayList<>(requests.size());
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            UserUpdateRequest req = requests.get(i);
+            String error = req.getId() == null ? "Missing id"
+                    : !ids.add(req.getId()) ? "Duplicate id in batch"
+                    : UserUpdateRepository.toColumns(req).isEmpty() ? "Missing fields to update" : null;
+            if (error == null) {
+                accepted.add(i);
+            } else {
+                items[i] = Item.builder().id(req.getId()).result(Result.rejected).error(error).build();
+            }
+        }
+
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> updateChunk(requests, chunk, items));
+            } catch (RuntimeException e) {
+                log.error("Update chunk of {} users unsuccessful, errorMessage={}", chunk.size(), e.getMessage());
+                String error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+                for (int i : chunk) {
+                    items[i] = Item.builder().id(requests.get(i).getId()).result(Result.rejected).error(error).build();
+                }
+            }
+        }
+
+        UserBatchUpdateResponse response = UserBatchUpdateResponse.builder().total(items.length).items(List.of(items)).build();
+        for (Item item : items) {
+            switch (item.getResult()) {
+                case updated -> response.setUpdated(response.getUpdated() + 1);
+                case conflict -> response.setConflicts(response.getConflicts() + 1);
+                case not_found -> response.setNotFound(response.getNotFound() + 1);
+                case rejected -> response.setRejected(response.getRejected() + 1);
+            }
+        }
+        log.info("Updated {} of {} users, {} conflicts, {} not found, {} rejected", response.getUpdated(), response.getTotal(),
+                response.getConflicts(), response.getNotFound(), response.getRejected());
+        return response;
+    }
+
+    private void updateChunk(List<UserUpdateRequest> requests, List<Integer> chunk, Item[] items) {
+        List<UserUpdateRequest> updates = chunk.stream().map(requests::get).toList();
+        Map<Long, Long> versions = userUpdateRepository.updateBatch(updates);
+
+        List<Long> missed = updates.stream().map(UserUpdateRequest::getId).filter(id -> !versions.containsKey(id)).toList();
+        Set<Long> existing = missed.isEmpty() ? Set.of() : userUpdateRepository.findExistingIds(missed);
+
+        List<Long> refreshed = new ArrayList<>();
+        for (int i : chunk) {
+            UserUpdateRequest req = requests.get(i);
+            long id = req.getId();
+            Long version = versions.get(id);
+            if (version != null) {
+                items[i] = Item.builder().id(id).result(Result.updated).version(version).build();
+                if (UserUpdateRepository.changesSearchVector(UserUpdateRepository.toColumns(req).keySet())) {
+                    refreshed.add(id);
+                }
+            } else if (existing.contains(id)) {
+                items[i] = Item.builder().id(id).result(Result.conflict).error("User has been changed by another request").build();
+            } else {
+                items[i] = Item.builder().id(id).result(Result.not_found).error("Not found user").build();
+            }
+        }
+
+        userTextSearchRepository.refreshSearchVectors(refreshed.stream().mapToLong(Long::longValue).toArray());
+        userCache.evictChanged(versions.keySet());
+    }
+}
@@ -0,0 +1,202 @@
+package com.sample.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.sample.config.ReadRouting;
+import com.sample.dto.response.UserDetailResponse;
+import com.sample.model.AddressEntity;
+import com.sample.model.UserEntity;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+@Component
+@Slf4j(topic = "USER-CACHE")
+@RequiredArgsConstructor
+public class UserCache {
+
+    private final AsyncCache<Long, UserDetailResponse> userDetailCache;
+    private final UserInvalidationBus invalidationBus;
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Get user detail from the cache, load it on a miss. The first caller of a missing user gets its pending entry
+     * back from the cache and loads it on its own thread, outside of the cache lock, so a slow query never holds a
+     * monitor; callers of the same user wait for that entry meanwhile. Loads are timed in the cache statistics. Loads
+     * read from the primary, a value from a lagging replica would stay cached
+     *
+     * @param id     user id
+     * @param loader reads the user from database, exceptions are not cached
+     * @return user detail
+     */
+    public UserDetailResponse get(long id, LongFunction<UserDetailResponse> loader) {
+        CompletableFuture<UserDetailResponse> loading = new CompletableFuture<>();
+        CompletableFuture<UserDetailResponse> cached = userDetailCache.get(id, (key, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(ReadRouting.onPrimary(() -> loader.apply(id)));
+            } catch (Throwable e) {
+                // errors too, callers of the same user would otherwise wait forever
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return join(cached);
+    }
+
+    /**
+     * Get many users from the cache, load the missing ones together, the same way as {@link #get}
+     *
+     * @param ids    user ids
+     * @param loader reads the missing users from database, users it does not return are not cached
+     * @return user detail by id of the users found
+     */
+    public Map<Long, UserDetailResponse> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, UserDetailResponse>> loader) {
+        Set<Long> missing = new HashSet<>();
+        CompletableFuture<Map<Long, UserDetailResponse>> loading = new CompletableFuture<>();
+        CompletableFuture<Map<Long, UserDetailResponse>> users = userDetailCache.getAll(ids, (keys, executor) -> {
+            missing.addAll(keys);
+            return loading;
+        });
+
+        if (!missing.isEmpty()) {
+            try {
+                loading.complete(ReadRouting.onPrimary(() -> loader.apply(Set.copyOf(missing))));
+            } catch (Throwable e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return join(users);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Evict a user now and once more after the current transaction commits, a read racing the transaction
+     * may have cached the old row in between. The other nodes are told once the change is committed
+     *
+     * @param id user id
+     */
+    public void evict(long id) {
+        userDetailCache.synchronous().invalidate(id);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userDetailCache.synchronous().invalidate(id);
+                    invalidationBus.publish(id);
+                }
+            });
+        } else {
+            invalidationBus.publish(id);
+        }
+    }
+
+    /**
+     * Evict users changed by SQL that went around Hibernate: the user detail cache and their second-level cache
+     * entries are dropped now and once more after the current transaction commits. The other nodes are told once
+     * the change is committed
+     *
+     * @param ids user ids
+     */
+    public void evictChanged(Collection<Long> ids) {
+        evictAround(List.copyOf(ids), false);
+    }
+
+    /**
+     * Evict users deleted by SQL that went around Hibernate, like {@link #evictChanged} but their addresses go too.
+     * Addresses are not keyed by user in the second-level cache, so their whole region goes
+     *
+     * @param ids user ids
+     */
+    public void evictDeleted(Collection<Long> ids) {
+        evictAround(List.copyOf(ids), true);
+    }
+
+    private void evictAround(List<Long> ids, boolean addresses) {
+        evictLocally(ids, addresses);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictLocally(ids, addresses);
+                    ids.forEach(invalidationBus::publish);
+                }
+            });
+        } else {
+            ids.forEach(invalidationBus::publish);
+        }
+    }
+
+    private void evictLocally(List<Long> ids, boolean addresses) {
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+
+        userDetailCache.synchronous().invalidateAll(ids);
+        for (Long id : ids) {
+            secondLevelCache.evictEntityData(UserEntity.class, id);
+            if (addresses) {
+                secondLevelCache.evictCollectionData(UserEntity.class.getName() + ".addressEntities", id);
+            }
+        }
+        if (addresses) {
+            secondLevelCache.evictEntityData(AddressEntity.class);
+        }
+        secondLevelCache.evictQueryRegions();
+    }
+
+    /**
+     * Drop the users changed on another node, from the user detail cache and the second-level cache. Addresses
+     * are not keyed by user there, so their whole region goes
+     *
+     * @param invalidation ids of the users, none for all
+     */
+    @EventListener
+    public void onInvalidation(UserInvalidationBus.Invalidation invalidation) {
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+
+        if (invalidation.isAll()) {
+            evictAll();
+            secondLevelCache.evictAllRegions();
+            return;
+        }
+
+        userDetailCache.synchronous().invalidateAll(invalidation.getIds());
+        for (Long id : invalidation.getIds()) {
+            secondLevelCache.evictEntityData(UserEntity.class, id);
+            secondLevelCache.evictCollectionData(UserEntity.class.getName() + ".addressEntities", id);
+        }
+        secondLevelCache.evictEntityData(AddressEntity.class);
+        secondLevelCache.evictQueryRegions();
+    }
+
+    /**
+     * Evict every user
+     */
+    public void evictAll() {
+        log.info("Evicting all cached users");
+        userDetailCache.synchronous().invalidateAll();
+    }
+}
@@ -0,0 +1,73 @@
+package com.sample.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.sample.model.UserEntity;
+import com.sample.repository.SearchRepository;
+import com.sample.repository.projection.UserSummary;
+import com.sample.repository.specification.SearchExpressionParser;
+import com.sample.util.ExportFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j(topic = "USER-EXPORT-SERVICE")
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+    private static final String[] CSV_COLUMNS = {"id", "firstName", "lastName", "email", "phone"};
+
+    private final SearchRepository searchRepository;
+    private final SearchExpressionParser searchExpressionParser;
+    private final ObjectMapper objectMapper;
+
+    @Value("${user.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * Write users matching all search expressions to the output as they are read, ordered by id. Memory does not
+     * grow with the number of users: rows come from a database cursor and each one is written then dropped.
+     * Search expressions are parsed before the first byte is written
+     *
+     * @param out    response body
+     * @param format NDJSON, one user per line, or CSV with header
+     * @param search filter expressions, all users without any
+     * @return number of users exported
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, ExportFormat format, String... search) throws IOException {
+        log.info("Exporting users to {} ...", format);
+
+        Specification<UserEntity> specification = searchExpressionParser.parseAll(search);
+        ObjectWriter writer = format == ExportFormat.csv
+                ? CSV_MAPPER.writerFor(UserSummary.class).with(CSV_MAPPER.schemaFor(UserSummary.class).sortedBy(CSV_COLUMNS).withHeader())
+                : objectMapper.writerFor(UserSummary.class).withRootValueSeparator("\n");
+
+        long count = 0;
+        try (Stream<UserSummary> users = searchRepository.streamUsers(specification, fetchSize);
+             SequenceWriter sequence = writer.writeValues(out)) {
+            for (Iterator<UserSummary> it = users.iterator(); it.hasNext(); count++) {
+                sequence.write(it.next());
+            }
+            if (format == ExportFormat.ndjson && count > 0) {
+                sequence.flush();
+                out.write('\n');
+            }
+        }
+
+        log.info("Exported {} users", count);
+        return count;
+    }
+}
@@ -0,0 +1,215 @@
+package com.sample.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.response.UserImportResponse;
+import com.sample.repository.UserCopyRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@Service
+@Slf4j(topic = "USER-IMPORT-SERVICE")
+@RequiredArgsConstructor
+public class UserImportService {
+
+    private static final int MAX_ERRORS = 100;
+    private static final List<String> ADDRESS_COLUMNS = List.of("apartmentNumber", "floor", "building", "streetNumber", "street", "city", "country", "addressType");
+
+    private final UserCopyRepository userCopyRepository;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${user.import.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Import users from newline delimited JSON, one UserCreationRequest per line
+     *
+     * @param in request body
+     * @return import report
+     */
+    public UserImportResponse importNdjson(InputStream in) throws IOException {
+        log.info("Importing users from NDJSON ...");
+
+        ObjectReader reader = objectMapper.readerFor(UserCreationRequest.class);
+        ChunkWriter writer = new ChunkWriter();
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(in, UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (!StringUtils.hasText(line)) {
+                    continue;
+                }
+                try {
+                    UserCreationRequest user = reader.readValue(line);
+                    if (user == null) {
+                        writer.reject("Record must be a JSON object");
+                    } else {
+                        writer.add(user);
+                    }
+                } catch (JsonProcessingException e) {
+                    writer.reject(e.getOriginalMessage());
+                }
+            }
+        }
+
+        return writer.finish();
+    }
+
+    /**
+     * Import users from CSV with header, consecutive rows of the same username add more addresses to that user
+     *
+     * @param in request body
+     * @return import report
+     */
+    public UserImportResponse importCsv(InputStream in) throws IOException {
+        log.info("Importing users from CSV ...");
+
+        ChunkWriter writer = new ChunkWriter();
+        CsvMapper csvMapper = new CsvMapper();
+
+        try (MappingIterator<Map<String, String>> rows = csvMapper.readerForMapOf(String.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(in)) {
+            String username = null;
+            UserCreationRequest user = null;
+            boolean rejected = false;
+
+            while (rows.hasNextValue()) {
+                Map<String, String> row = new HashMap<>(rows.nextValue());
+                row.values().removeIf(v -> !StringUtils.hasLength(v));
+
+                if (username == null || !username.equals(row.get("username"))) {
+                    if (user != null) {
+                        writer.add(user);
+                    }
+                    username = row.getOrDefault("username", "");
+                    try {
+                        user = objectMapper.convertValue(row, UserCreationRequest.class);
+                        user.setAddresses(new HashSet<>());
+                        rejected = false;
+                    } catch (IllegalArgumentException e) {
+                        writer.reject(e.getMessage());
+                        user = null;
+                        rejected = true;
+                    }
+                }
+
+                if (!rejected && ADDRESS_COLUMNS.stream().anyMatch(row::containsKey)) {
+                    try {
+                        user.getAddresses().add(objectMapper.convertValue(row, UserCreationRequest.Address.class));
+                    } catch (IllegalArgumentException e) {
+                        writer.reject(e.getMessage());
+                        user = null;
+                        rejected = true;
+                    }
+                }
+            }
+            if (user != null) {
+                writer.add(user);
+            }
+        } catch (JsonProcessingException e) {
+            writer.reject("Malformed CSV: " + e.getOriginalMessage());
+        }
+
+        return writer.finish();
+    }
+
+    /**
+     * Validate records as they arrive and flush them by COPY in chunks, each chunk in its own transaction. Only
+     * the totals and the first errors are kept, the report stays the same size whatever the number of records
+     */
+    private class ChunkWriter {
+        private final List<UserCreationRequest> pending = new ArrayList<>(chunkSize);
+        private final List<UserImportResponse.RecordError> errors = new ArrayList<>();
+        private boolean errorsTruncated;
+        private long record;
+        private long firstRecord = 1;
+        private long imported;
+        private long rejected;
+
+        void add(UserCreationRequest user) {
+            Set<ConstraintViolation<UserCreationRequest>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                reject(violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", ")));
+                return;
+            }
+            record++;
+            pending.add(user);
+            flushIfFull();
+        }
+
+        void reject(String messages) {
+            record++;
+            rejected++;
+            error(record, record, messages);
+            flushIfFull();
+        }
+
+        UserImportResponse finish() {
+            if (record >= firstRecord) {
+                flush();
+            }
+            log.info("Imported {} users, rejected {}", imported, rejected);
+
+            return UserImportResponse.builder()
+                    .totalRecords(record)
+                    .imported(imported)
+                    .rejected(rejected)
+                    .errors(errors)
+                    .errorsTruncated(errorsTruncated)
+                    .build();
+        }
+
+        private void flushIfFull() {
+            if (record - firstRecord + 1 >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                try {
+                    Long count = transactionTemplate.execute(status -> userCopyRepository.copyUsers(pending));
+                    imported += count == null ? 0 : count;
+                } catch (RuntimeException e) {
+                    log.error("Import of records {} to {} unsuccessful, errorMessage={}", firstRecord, record, e.getMessage());
+                    rejected += pending.size();
+                    error(firstRecord, record, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                }
+            }
+            firstRecord = record + 1;
+            pending.clear();
+        }
+
+        private void error(long first, long last, String messages) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(UserImportResponse.RecordError.builder().firstRecord(first).lastRecord(last).messages(messages).build());
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.sample.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the per-node user caches of all replicas coherent. Committed mutations are sent as NOTIFY on a channel,
+ * ids of a burst are batched into few payloads, and a dedicated LISTEN connection on every node turns the
+ * notifications of the other nodes into {@link Invalidation} events
+ */
+@Component
+@Slf4j(topic = "USER-INVALIDATION-BUS")
+@RequiredArgsConstructor
+public class UserInvalidationBus implements SmartLifecycle {
+
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int POLL_MILLIS = 500;
+    private static final long RECONNECT_MILLIS = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean listening = new AtomicBoolean();
+
+    @Value("${user.cache.invalidation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${user.cache.invalidation.channel:user_invalidation}")
+    private String channel;
+
+    @Value("${user.cache.invalidation.batch-window:50ms}")
+    private Duration batchWindow;
+
+    private volatile boolean running;
+    private ScheduledExecutorService publisher;
+    private Thread listener;
+
+    /**
+     * Local caches of one node have to drop these users, or every user when ids is empty
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Invalidation {
+        private final Set<Long> ids;
+
+        public boolean isAll() {
+            return ids.isEmpty();
+        }
+    }
+
+    /**
+     * Queue a committed change of a user, the ids queued within the batch window go out together
+     *
+     * @param id user id
+     */
+    public void publish(long id) {
+        if (!running) {
+            return;
+        }
+        pending.add(id);
+        if (flushScheduled.compareAndSet(false, true)) {
+            publisher.schedule(this::flush, batchWindow.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    boolean isListening() {
+        return listening.get();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            log.info("Cache invalidation bus disabled");
+            return;
+        }
+        running = true;
+        publisher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "user-invalidation-publisher"));
+        listener = new Thread(this::listen, "user-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        publisher.shutdown();
+        flush();
+        listener.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Send the queued ids as few NOTIFY payloads as fit, prefixed with the node id so the sender skips its own
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(pending);
+        pending.removeAll(ids);
+
+        StringBuilder payload = new StringBuilder(nodeId).append(':');
+        int start = payload.length();
+        for (Long id : ids) {
+            String value = id.toString();
+            if (payload.length() + value.length() + 1 > MAX_PAYLOAD_BYTES) {
+                notify(payload);
+                payload.setLength(start);
+            }
+            if (payload.length() > start) {
+                payload.append(',');
+            }
+            payload.append(value);
+        }
+        notify(payload);
+    }
+
+    private void notify(StringBuilder payload) {
+        try {
+            jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, payload.toString());
+        } catch (RuntimeException e) {
+            // the other nodes serve the old row until it expires
+            log.error("Notify invalidation unsuccessful, errorMessage={}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hold a LISTEN connection outside of the pool, reconnect when it breaks and flush every local cache after
+     * a reconnect because notifications sent in between are lost
+     */
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection con = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = con.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                listening.set(true);
+                if (reconnect) {
+                    log.info("Listener reconnected, flushing local caches");
+                    eventPublisher.publishEvent(new Invalidation(Set.of()));
+                }
+                reconnect = true;
+
+                PGConnection pgConnection = con.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null && notifications.length > 0) {
+                        receive(notifications);
+                    }
+                }
+            } catch (SQLException e) {
+                listening.set(false);
+                if (running) {
+                    log.warn("Listener connection lost, errorMessage={}", e.getMessage());
+                    sleep();
+                }
+            }
+        }
+        listening.set(false);
+    }
+
+    /**
+     * Evict the users of a batch of notifications, neither a bad payload nor a failed eviction may end the listener
+     */
+    private void receive(PGNotification[] notifications) {
+        Set<Long> ids = new HashSet<>();
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            int separator = payload.indexOf(':');
+            if (separator < 0 || payload.substring(0, separator).equals(nodeId)) {
+                continue;
+            }
+            for (String id : payload.substring(separator + 1).split(",")) {
+                if (!id.isEmpty()) {
+                    try {
+                        ids.add(Long.parseLong(id));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid user id in invalidation skipped, payload={}", payload);
+                    }
+                }
+            }
+        }
+        if (!ids.isEmpty()) {
+            try {
+                eventPublisher.publishEvent(new Invalidation(ids));
+            } catch (RuntimeException e) {
+                // these users are served from cache until they expire
+                log.error("Invalidation unsuccessful, ids={}, errorMessage={}", ids, e.getMessage());
+            }
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RECONNECT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,36 +1,68 @@
 package com.sample.service;
 
 import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.request.UserDeleteRequest;
+import com.sample.dto.request.UserStatusChangeRequest;
 import com.sample.dto.request.UserUpdateRequest;
+import com.sample.dto.response.UserDeleteResponse;
 import com.sample.dto.response.UserDetailResponse;
 import com.sample.dto.response.UserListResponse;
+import com.sample.dto.response.UserStatusChangeResponse;
+import com.sample.exception.InvalidDataException;
 import com.sample.exception.ResourceNotFoundException;
 import com.sample.model.AddressEntity;
 import com.sample.model.UserEntity;
 import com.sample.repository.SearchRepository;
+import com.sample.repository.ShardedUserRepository;
+import com.sample.repository.UserBulkRepository;
+import com.sample.repository.UserListJsonRepository;
 import com.sample.repository.UserRepository;
+import com.sample.repository.UserTextSearchRepository;
+import com.sample.repository.UserUpdateRepository;
 import com.sample.repository.criteria.SearchCriteria;
-import com.sample.repository.specification.UserSpecificationsBuilder;
+import com.sample.repository.criteria.UserSearchAttributes;
+import com.sample.repository.keyset.KeysetPage;
+import com.sample.repository.projection.UserSummary;
+import com.sample.repository.projection.VersionedUserSummary;
+import com.sample.repository.specification.SearchExpressionParser;
+import com.sample.util.TotalMode;
 import com.sample.util.UserStatus;
-import com.google.common.base.Joiner;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import static com.sample.util.Constant.Regex.SEARCH_OPERATOR;
 import static com.sample.util.Constant.Regex.SORT_OPERATOR;
-import static com.sample.util.SearchOperation.SIMPLE_OPERATION_SET;
 import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
@@ -39,19 +71,58 @@ import static org.springframework.data.domain.Sort.Direction.DESC;
 @RequiredArgsConstructor
 public class UserService {
 
+    private static final Pattern SORT_PATTERN = Pattern.compile(SORT_OPERATOR);
+    private static final Pattern SEARCH_PATTERN = Pattern.compile(SEARCH_OPERATOR);
+
     private final UserRepository userRepository;
     private final SearchRepository searchRepository;
+    private final UserTextSearchRepository userTextSearchRepository;
+    private final UserCache userCache;
+    private final SearchExpressionParser searchExpressionParser;
+    private final UserListJsonRepository userListJsonRepository;
+    private final UserBulkRepository userBulkRepository;
+    private final UserUpdateRepository userUpdateRepository;
+    private final UserBatchLoader userBatchLoader;
+    private final SingleFlight singleFlight;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ShardedUserRepository> shardedUserRepository;
+
+    @Value("${user.list.streaming-page-size:500}")
+    private int streamingPageSize;
+
+    @Value("${user.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
 
     /**
-     * Create new user
+     * Create new user, on the shard of its username when users are sharded
      *
      * @param req
      * @return
      */
-    @Transactional(rollbackFor = Exception.class)
     public long addUser(UserCreationRequest req) {
         log.info("Saving user ...");
 
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        long id;
+        if (shards != null) {
+            id = shards.insert(req);
+            userCache.evict(id);
+        } else {
+            id = Objects.requireNonNull(transactionTemplate.execute(tx -> saveUser(req)));
+        }
+
+        log.info("User added successfully");
+
+        return id;
+    }
+
+    /**
+     * Insert a user and its addresses through JPA, must be called inside a transaction
+     *
+     * @param req
+     * @return id of the user
+     */
+    private long saveUser(UserCreationRequest req) {
         UserEntity userEntity = new UserEntity();
         userEntity.setFirstName(req.getFirstName());
         userEntity.setLastName(req.getLastName());
@@ -77,22 +148,68 @@ public class UserService {
 
         );
 
-        UserEntity result = userRepository.save(userEntity);
-
-        log.info("User added successfully");
+        // addresses must be inserted before the search vector is computed from them
+        UserEntity result = userRepository.saveAndFlush(userEntity);
+        userTextSearchRepository.refreshSearchVectors(result.getId());
+        userCache.evict(result.getId());
 
         return result.getId();
     }
 
     /**
-     * Update a userEntity
+     * Update the non-null fields of a user in one UPDATE listing only their columns, the user and its addresses are
+     * not loaded. Fields left null keep the value a concurrent update may have written. With a version the update
+     * only applies to that version of the user, a stale version is a conflict. Sharded users are updated on their shard
      *
-     * @param req
+     * @param req fields to change and the expected version, if any
+     * @return new version of the user
      */
-    @Transactional(rollbackFor = Exception.class)
-    public void updateUser(UserUpdateRequest req) {
+    public long updateUser(UserUpdateRequest req) {
         log.info("Processing update user ...");
 
+        Map<String, Object> columns = UserUpdateRepository.toColumns(req);
+        if (columns.isEmpty()) {
+            throw new InvalidDataException("Missing fields to update");
+        }
+
+        long id = req.getId();
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        Long version = shards != null ? shards.updateColumns(id, req.getVersion(), columns)
+                : transactionTemplate.execute(tx -> updateColumns(id, req.getVersion(), columns));
+        if (version == null) {
+            if (!existsById(id)) {
+                throw new ResourceNotFoundException("Not found user");
+            }
+            throw new OptimisticLockingFailureException("User has been changed by another request, please reload it and try again");
+        }
+        if (shards != null) {
+            // the transaction of the shard has committed
+            userCache.evictChanged(List.of(id));
+        }
+
+        log.info("User updated successfully, version={}", version);
+        return version;
+    }
+
+    /**
+     * Update the columns of a user and its search vector, must be called inside a transaction
+     *
+     * @return new version, null when no row matched
+     */
+    private Long updateColumns(long id, Long version, Map<String, Object> columns) {
+        Long updated = userUpdateRepository.updateColumns(id, version, columns);
+        if (updated != null) {
+            if (UserUpdateRepository.changesSearchVector(columns.keySet())) {
+                userTextSearchRepository.refreshSearchVectors(id);
+            }
+            userCache.evictChanged(List.of(id));
+        }
+        return updated;
+    }
+
+    private boolean existsById(long id) {
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        return shards != null ? shards.existsById(id) : userRepository.existsById(id);
     }
 
     /**
@@ -100,33 +217,260 @@ public class UserService {
      *
      * @param id
      * @param status
+     * @return 1 when the status changed, 0 when the user already had it
      */
-    public void changeStatus(long id, String status) {
+    public long changeStatus(long id, String status) {
         log.info("Changing status user, status={}", status);
 
+        long changed = changeStatus(UserStatus.valueOf(status), List.of(id)).getChanged();
+        if (changed == 0 && !existsById(id)) {
+            throw new ResourceNotFoundException("Not found user");
+        }
+        return changed;
+    }
+
+    /**
+     * Change the status of the users given by ids or by search expressions, exactly one of them
+     *
+     * @param req new status and its target
+     * @return affected row counts
+     */
+    public UserStatusChangeResponse changeStatus(UserStatusChangeRequest req) {
+        boolean byIds = !CollectionUtils.isEmpty(req.getIds());
+        boolean bySearch = !CollectionUtils.isEmpty(req.getSearch());
+        if (byIds == bySearch) {
+            throw new InvalidDataException("Either ids or search must be given");
+        }
+        return byIds ? changeStatus(req.getStatus(), req.getIds()) : changeStatusByCriteria(req.getStatus(), req.getSearch().toArray(String[]::new));
+    }
+
+    /**
+     * Set the status of users by id with one UPDATE per chunk of ids, each chunk commits on its own so row locks
+     * are held for one chunk only. No entity is loaded
+     *
+     * @param status new status
+     * @param ids    user ids, unknown ids are skipped
+     * @return affected row counts
+     */
+    public UserStatusChangeResponse changeStatus(UserStatus status, Collection<Long> ids) {
+        Chunked result = inChunks(ids, chunk -> updateStatus(chunk, status));
+        log.info("Changed status of {} of {} users to {} in {} chunks", result.affected(), result.matched(), status, result.chunks());
+
+        return UserStatusChangeResponse.builder().matched(result.matched()).changed(result.affected()).chunks(result.chunks()).build();
     }
 
     /**
-     * Delete user permanently
+     * Set the status of users matching the search expressions of the specification search, chunk by chunk in id
+     * order like {@link #changeStatus(UserStatus, Collection)}
+     *
+     * @param status new status
+     * @param search search expressions, at least one
+     * @return affected row counts
+     */
+    public UserStatusChangeResponse changeStatusByCriteria(UserStatus status, String... search) {
+        requireUnsharded("Change status by search");
+        Chunked result = inChunks(search, chunk -> updateStatus(chunk, status));
+        log.info("Changed status of {} of {} matching users to {} in {} chunks", result.affected(), result.matched(), status, result.chunks());
+
+        return UserStatusChangeResponse.builder().matched(result.matched()).changed(result.affected()).chunks(result.chunks()).build();
+    }
+
+    /**
+     * Update one chunk in its own transaction, one per shard when users are sharded, and evict the users it changed
+     */
+    private int updateStatus(List<Long> ids, UserStatus status) {
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        if (shards != null) {
+            List<Long> changedIds = shards.updateStatus(ids, status);
+            userCache.evictChanged(changedIds);
+            return changedIds.size();
+        }
+
+        Integer changed = transactionTemplate.execute(tx -> {
+            List<Long> changedIds = userBulkRepository.updateStatus(ids, status);
+            userCache.evictChanged(changedIds);
+            return changedIds.size();
+        });
+        return changed == null ? 0 : changed;
+    }
+
+    /**
+     * Delete user permanently, an unknown id is ignored
      * @param id
      */
-    @Transactional(rollbackFor = Exception.class)
     public void deleteUser(long id) {
         log.info("Processing delete user ...");
-        userRepository.deleteById(id);
+        deleteUsers(List.of(id));
+    }
+
+    /**
+     * Delete the users given by ids or by search expressions, exactly one of them
+     *
+     * @param req target of the delete
+     * @return affected row counts
+     */
+    public UserDeleteResponse deleteUsers(UserDeleteRequest req) {
+        boolean byIds = !CollectionUtils.isEmpty(req.getIds());
+        boolean bySearch = !CollectionUtils.isEmpty(req.getSearch());
+        if (byIds == bySearch) {
+            throw new InvalidDataException("Either ids or search must be given");
+        }
+        return byIds ? deleteUsers(req.getIds()) : deleteUsersByCriteria(req.getSearch().toArray(String[]::new));
+    }
+
+    /**
+     * Delete users and their addresses by id with one DELETE per table and chunk of ids, each chunk commits on its
+     * own. No entity is loaded, where deleteById loads the user with its addresses and deletes them row by row
+     *
+     * @param ids user ids, unknown ids are skipped
+     * @return affected row counts
+     */
+    public UserDeleteResponse deleteUsers(Collection<Long> ids) {
+        LongAdder addresses = new LongAdder();
+        Chunked result = inChunks(ids, chunk -> deleteChunk(chunk, addresses));
+        log.info("Deleted {} of {} users and {} addresses in {} chunks", result.affected(), result.matched(), addresses, result.chunks());
+
+        return UserDeleteResponse.builder().matched(result.matched()).deleted(result.affected())
+                .deletedAddresses(addresses.sum()).chunks(result.chunks()).build();
     }
 
-    public UserDetailResponse getUser(int userId) {
+    /**
+     * Delete users matching the search expressions of the specification search and their addresses, chunk by chunk
+     * in id order like {@link #deleteUsers(Collection)}
+     *
+     * @param search search expressions, at least one
+     * @return affected row counts
+     */
+    public UserDeleteResponse deleteUsersByCriteria(String... search) {
+        requireUnsharded("Delete by search");
+        LongAdder addresses = new LongAdder();
+        Chunked result = inChunks(search, chunk -> deleteChunk(chunk, addresses));
+        log.info("Deleted {} of {} matching users and {} addresses in {} chunks", result.affected(), result.matched(), addresses, result.chunks());
+
+        return UserDeleteResponse.builder().matched(result.matched()).deleted(result.affected())
+                .deletedAddresses(addresses.sum()).chunks(result.chunks()).build();
+    }
+
+    /**
+     * Delete one chunk in its own transaction, one per shard when users are sharded, addresses first, and evict the
+     * users it deleted
+     */
+    private int deleteChunk(List<Long> ids, LongAdder addresses) {
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        if (shards != null) {
+            List<Long> deletedIds = shards.deleteUsers(ids, addresses);
+            userCache.evictDeleted(deletedIds);
+            return deletedIds.size();
+        }
+
+        Integer deleted = transactionTemplate.execute(tx -> {
+            addresses.add(userBulkRepository.deleteAddresses(ids));
+            List<Long> deletedIds = userBulkRepository.deleteUsers(ids);
+            userCache.evictDeleted(deletedIds);
+            return deletedIds.size();
+        });
+        return deleted == null ? 0 : deleted;
+    }
+
+    /**
+     * Turn away a change by search when users are sharded, the search would run on the database of spring.datasource,
+     * which holds no user
+     *
+     * @param operation name of the change for the error
+     */
+    private void requireUnsharded(String operation) {
+        if (shardedUserRepository.getIfAvailable() != null) {
+            throw new InvalidDataException(operation + " is not available on sharded storage");
+        }
+    }
+
+    /**
+     * Run a set-based change on the distinct ids in id order, bulkChunkSize ids at a time
+     *
+     * @param ids    user ids
+     * @param action changes one chunk, returns the number of rows it affected
+     * @return counts of the whole run
+     */
+    private Chunked inChunks(Collection<Long> ids, ToIntFunction<List<Long>> action) {
+        List<Long> sorted = List.copyOf(new TreeSet<>(ids));
+        long affected = 0;
+        int chunks = 0;
+        for (int from = 0; from < sorted.size(); from += bulkChunkSize) {
+            affected += action.applyAsInt(sorted.subList(from, Math.min(from + bulkChunkSize, sorted.size())));
+            chunks++;
+        }
+        return new Chunked(sorted.size(), affected, chunks);
+    }
+
+    /**
+     * Run a set-based change on the users matching search expressions. Each chunk reads only the ids that follow the
+     * previous chunk, so rows still matching after the change are not visited twice
+     *
+     * @param search search expressions, at least one
+     * @param action changes one chunk, returns the number of rows it affected
+     * @return counts of the whole run
+     */
+    private Chunked inChunks(String[] search, ToIntFunction<List<Long>> action) {
+        Specification<UserEntity> specification = searchExpressionParser.parseAll(search);
+        if (specification == null) {
+            throw new InvalidDataException("Missing search expression");
+        }
+
+        long matched = 0;
+        long affected = 0;
+        int chunks = 0;
+        List<Long> ids = searchRepository.findIds(specification, 0, bulkChunkSize);
+        while (!ids.isEmpty()) {
+            matched += ids.size();
+            affected += action.applyAsInt(ids);
+            chunks++;
+            ids = ids.size() < bulkChunkSize ? List.of() : searchRepository.findIds(specification, ids.get(ids.size() - 1), bulkChunkSize);
+        }
+        return new Chunked(matched, affected, chunks);
+    }
+
+    /**
+     * Get user detail, read through the user cache. With the batch loader enabled, misses of concurrent calls
+     * are loaded together. Sharded users are read from their shard
+     *
+     * @param userId
+     * @return
+     */
+    public UserDetailResponse getUser(long userId) {
         log.info("Processing get user ...");
 
-        UserEntity user = get(userId);
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        return singleFlight.execute(SingleFlight.USER_DETAIL, userId, () -> userCache.get(userId, id -> {
+            Optional<VersionedUserSummary> user = shards != null ? shards.findSummaryById(id)
+                    : userBatchLoader.isEnabled() ? userBatchLoader.load(id) : userRepository.findSummaryById(id);
+            return toUserDetail(user.orElseThrow(() -> new ResourceNotFoundException("Not found user")));
+        }));
+    }
+
+    /**
+     * Get many users by id, read through the user cache, the misses are loaded with one query
+     *
+     * @param ids user ids
+     * @return users found, in the order of the ids without duplicates, unknown ids are skipped
+     */
+    public List<UserDetailResponse> getUsersByIds(List<Long> ids) {
+        log.info("Processing get {} users ...", ids.size());
+
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        Map<Long, UserDetailResponse> users = userCache.getAll(ids, missing -> (shards != null ? shards.findSummaryByIdIn(missing)
+                : userRepository.findSummaryByIdIn(missing)).stream()
+                .collect(Collectors.toMap(VersionedUserSummary::getId, this::toUserDetail)));
+        return ids.stream().distinct().map(users::get).filter(Objects::nonNull).toList();
+    }
 
+    private UserDetailResponse toUserDetail(VersionedUserSummary user) {
         return UserDetailResponse.builder()
-                .id(userId)
+                .id(user.getId())
                 .firstName(user.getFirstName())
                 .lastName(user.getLastName())
                 .email(user.getEmail())
                 .phone(user.getPhone())
+                .version(user.getVersion())
                 .build();
     }
 
@@ -138,7 +482,8 @@ public class UserService {
      */
     public List<UserDetailResponse> getUsers(Pageable pageable) {
         log.info("Processing get user list with pageable");
-        Page<UserEntity> users = userRepository.findAll(pageable);
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        Slice<UserSummary> users = shards != null ? shards.findPage(pageable, List.of(), TotalMode.none) : userRepository.findAllBy(pageable);
 
         return users.stream().map(user -> UserDetailResponse.builder()
                 .id(user.getId())
@@ -163,48 +508,92 @@ public class UserService {
         int currentPage = pageNo;
         if (pageNo > 0) currentPage = pageNo - 1;
 
-        List<Sort.Order> sorts = new ArrayList<>();
-        if (sort.length > 0) {
-            Pattern pattern = Pattern.compile(SORT_OPERATOR);
-            for (String s : sort) {
-                Matcher matcher = pattern.matcher(s);
-                if (matcher.find()) {
-                    if (matcher.group(3).equalsIgnoreCase("asc"))
-                        sorts.add(new Sort.Order(ASC, matcher.group(1)));
-                    else
-                        sorts.add(new Sort.Order(DESC, matcher.group(1)));
-                }
-            }
-        }
+        Pageable pageable = PageRequest.of(currentPage, pageSize, toSort(sort));
+        ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+        return singleFlight.execute(SingleFlight.USER_LIST, pageable, () -> shards != null
+                ? toUserList(shards.findPage(pageable, List.of(), TotalMode.exact), TotalMode.exact)
+                : toUserList(userRepository.findAllBy(pageable)));
+    }
+
+    /**
+     * Whether a page is large enough to be written straight from the JDBC rows instead of a UserListResponse
+     *
+     * @param pageSize size of page
+     * @return true from user.list.streaming-page-size rows, never for sharded users
+     */
+    public boolean isStreamed(int pageSize) {
+        return pageSize >= streamingPageSize && shardedUserRepository.getIfAvailable() == null;
+    }
+
+    /**
+     * Write user list has been sorted and paged to the output, the JSON of {@link #getUsers(int, int, String...)}
+     *
+     * @param out      response body
+     * @param pageNo   page number
+     * @param pageSize size of page
+     * @param sort     sort by fields
+     */
+    public void writeUsers(OutputStream out, int pageNo, int pageSize, String... sort) throws IOException {
+        log.info("Writing user list with pageable and sorting");
 
-        Page<UserEntity> users = userRepository.findAll(PageRequest.of(currentPage, pageSize, Sort.by(sorts)));
+        userListJsonRepository.writePage(out, PageRequest.of(pageNo > 0 ? pageNo - 1 : pageNo, pageSize, toSort(sort)), List.of());
+    }
 
-        return toUserList(users);
+    /**
+     * Get user list has been sorted, one keyset page after the cursor
+     *
+     * @param cursor   token of the previous page, empty for the first page
+     * @param pageSize size of page
+     * @param sort     one sort field
+     * @return list of users and the cursor of the next page
+     */
+    public UserListResponse scrollUsers(String cursor, int pageSize, String... sort) {
+        log.info("Getting user list with cursor and sorting");
+
+        return toUserList(searchRepository.findUsersByKeyset((Specification<UserEntity>) null, toSort(sort), cursor, pageSize));
     }
 
     /**
      * Get user list has been page, sorted and filtered.
      *
      * @param pageable includes page, size and sort
+     * @param total    exact, none or estimate
      * @param search   array of filters
      * @return list of users
      */
-    public UserListResponse getUsersByCriteria(Pageable pageable, String... search) {
-        List<SearchCriteria> params = new ArrayList<>();
-
-        if (search.length > 0) {
-            Pattern pattern = Pattern.compile(SEARCH_OPERATOR);
-            for (String s : search) {
-                Matcher matcher = pattern.matcher(s);
-                if (matcher.find()) {
-                    params.add(new SearchCriteria(matcher.group(1), matcher.group(2), matcher.group(3)));
-                }
-            }
-        }
+    public UserListResponse getUsersByCriteria(Pageable pageable, TotalMode total, String... search) {
+        List<SearchCriteria> criteria = toCriteria(search);
+        return singleFlight.execute(SingleFlight.CRITERIA_SEARCH, Arrays.asList(normalize(criteria), pageable, total), () -> {
+            ShardedUserRepository shards = shardedUserRepository.getIfAvailable();
+            Slice<UserSummary> users = shards != null ? shards.findPage(pageable, criteria, total)
+                    : searchRepository.findAllUsersByCriteria(pageable, criteria, total);
+
+            return toUserList(users, total);
+        });
+    }
 
-        Page<UserEntity> users = searchRepository.findAllUsersByCriteria(pageable, params);
+    /**
+     * Write user list has been paged, sorted and filtered to the output with its exact total, the JSON of
+     * {@link #getUsersByCriteria(Pageable, TotalMode, String...)}
+     *
+     * @param out      response body
+     * @param pageable includes page, size and sort
+     * @param search   array of filters
+     */
+    public void writeUsersByCriteria(OutputStream out, Pageable pageable, String... search) throws IOException {
+        userListJsonRepository.writePage(out, pageable, toCriteria(search));
+    }
 
-        return toUserList(users);
+    /**
+     * Get user list has been sorted and filtered, one keyset page after the cursor
+     *
+     * @param cursor   token of the previous page, empty for the first page
+     * @param pageable includes size and one sort field
+     * @param search   array of filters
+     * @return list of users and the cursor of the next page
+     */
+    public UserListResponse scrollUsersByCriteria(String cursor, Pageable pageable, String... search) {
+        return toUserList(searchRepository.findUsersByKeyset(toCriteria(search), pageable.getSort(), cursor, pageable.getPageSize()));
     }
 
     /**
@@ -215,22 +604,39 @@ public class UserService {
      * @return list of users
      */
     public UserListResponse getUsersBySpecifications(Pageable pageable, String... search) {
-        UserSpecificationsBuilder builder = new UserSpecificationsBuilder();
-        String operations = Joiner.on("|").join(SIMPLE_OPERATION_SET);
+        return singleFlight.execute(SingleFlight.SPECIFICATION_SEARCH, Arrays.asList(normalize(search), pageable), () -> {
+            Page<UserSummary> users = searchRepository.findAllUsersBySpecification(pageable, toSpecification(search));
 
-        if (search.length > 0) {
-            Pattern pattern = Pattern.compile("(\\w+?)(" + operations + ")(\\p{Punct}?)(.*)(\\p{Punct}?)");
-            for (String s : search) {
-                Matcher matcher = pattern.matcher(s);
-                if (matcher.find()) {
-                    builder.with(matcher.group(1), matcher.group(2), matcher.group(4), matcher.group(3), matcher.group(5));
-                }
-            }
-        }
+            return toUserList(users);
+        });
+    }
 
-        Page<UserEntity> users = userRepository.findAll(Objects.requireNonNull(builder.build()), pageable);
+    /**
+     * Get user list by specifications, one keyset page after the cursor
+     *
+     * @param cursor   token of the previous page, empty for the first page
+     * @param pageable includes size and one sort field
+     * @param search   array of filters
+     * @return list of users and the cursor of the next page
+     */
+    public UserListResponse scrollUsersBySpecifications(String cursor, Pageable pageable, String... search) {
+        return toUserList(searchRepository.findUsersByKeyset(toSpecification(search), pageable.getSort(), cursor, pageable.getPageSize()));
+    }
 
-        return toUserList(users);
+    /**
+     * Full-text search of users, best match first, one keyset page after the cursor
+     *
+     * @param text     words to search in names, email and addresses
+     * @param cursor   token of the previous page, empty for the first page
+     * @param pageSize size of page
+     * @return list of users and the cursor of the next page
+     */
+    public UserListResponse searchUsersByText(String text, String cursor, int pageSize) {
+        log.info("Searching user by text");
+
+        // the 'simple' configuration folds case, so does the key
+        List<Object> key = Arrays.asList(text == null ? "" : text.trim().toLowerCase(Locale.ROOT), cursor, pageSize);
+        return singleFlight.execute(SingleFlight.TEXT_SEARCH, key, () -> toUserList(userTextSearchRepository.searchUsers(text, cursor, pageSize)));
     }
 
     /**
@@ -240,27 +646,95 @@ public class UserService {
      * @param gender
      * @param pageNo
      * @param pageSize
+     * @param total     exact, none or estimate
      * @return
      */
-    public UserListResponse getUsersByCustomizeQuery(String firstName, String lastName, Integer gender, int pageNo, int pageSize) {
-        Page<UserDetailResponse> users = searchRepository.findAllUsersByCustomizeQuery(firstName, lastName, gender, pageNo, pageSize);
-        return UserListResponse.builder()
-                .users(users.stream().toList())
-                .pageNo(users.getNumber())
-                .pageSize(users.getSize())
-                .totalPage(users.getTotalPages())
-                .build();
+    public UserListResponse getUsersByCustomizeQuery(String firstName, String lastName, Integer gender, int pageNo, int pageSize, TotalMode total) {
+        Slice<UserSummary> users = searchRepository.findAllUsersByCustomizeQuery(firstName, lastName, gender, pageNo, pageSize, total);
+        // this endpoint has always answered first and last name apart, the other lists join them in firstName
+        return toUserList(users, total, user -> UserDetailResponse.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .phone(user.getPhone())
+                .build());
     }
 
     /**
-     * Get user by ID
+     * Key of filter expressions for single-flight reads, the filters are AND-ed so their order does not matter
      *
-     * @param id
-     * @return
+     * @param search array of filter expressions
+     * @return filters in natural order
+     */
+    private static List<String> normalize(String... search) {
+        return search == null ? List.of() : Arrays.stream(search).filter(Objects::nonNull).sorted().toList();
+    }
+
+    /**
+     * Key of parsed criteria for single-flight reads, filters the parser reads the same way share the key
+     *
+     * @param criteria AND-ed criteria
+     * @return key, operation and typed value of every criterion
      */
-    private UserEntity get(long id) {
-        log.info("Retrieving user from database");
-        return userRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Not found user"));
+    private static Set<List<Object>> normalize(List<SearchCriteria> criteria) {
+        return criteria.stream().map(c -> Arrays.asList(c.getKey(), c.getOperation(), c.getValue())).collect(Collectors.toSet());
+    }
+
+    /**
+     * Parse sort params
+     *
+     * @param sort array of field:asc|desc
+     * @return sort
+     */
+    private Sort toSort(String... sort) {
+        List<Sort.Order> sorts = new ArrayList<>();
+        if (sort != null && sort.length > 0) {
+            for (String s : sort) {
+                Matcher matcher = SORT_PATTERN.matcher(s);
+                if (matcher.find()) {
+                    if (matcher.group(3).equalsIgnoreCase("asc"))
+                        sorts.add(new Sort.Order(ASC, matcher.group(1)));
+                    else
+                        sorts.add(new Sort.Order(DESC, matcher.group(1)));
+                }
+            }
+        }
+        return Sort.by(sorts);
+    }
+
+    /**
+     * Parse search params of criteria search
+     *
+     * @param search array of filters
+     * @return list of criteria
+     */
+    private List<SearchCriteria> toCriteria(String... search) {
+        List<SearchCriteria> params = new ArrayList<>();
+
+        if (search.length > 0) {
+            for (String s : search) {
+                Matcher matcher = SEARCH_PATTERN.matcher(s);
+                if (matcher.find()) {
+                    params.add(UserSearchAttributes.criteria(matcher.group(1), matcher.group(2), matcher.group(3)));
+                }
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Parse search params of specification search, each param is a filter expression and all of them must match
+     *
+     * @param search array of filter expressions
+     * @return specification
+     */
+    private Specification<UserEntity> toSpecification(String... search) {
+        Specification<UserEntity> result = searchExpressionParser.parseAll(search);
+        if (result == null) {
+            throw new InvalidDataException("Missing search expression");
+        }
+        return result;
     }
 
     /**
@@ -269,20 +743,69 @@ public class UserService {
      * @param users
      * @return
      */
-    private UserListResponse toUserList(Page<UserEntity> users) {
-        List<UserDetailResponse> list = users.stream().map(user -> UserDetailResponse.builder()
+    private UserListResponse toUserList(Page<UserSummary> users) {
+        return toUserList(users, TotalMode.exact);
+    }
+
+    /**
+     * Covert to UserListResponse, a slice has no total but tells whether there is a next page
+     *
+     * @param users
+     * @param total kind of total the page carries
+     * @return
+     */
+    private UserListResponse toUserList(Slice<UserSummary> users, TotalMode total) {
+        return toUserList(users, total, UserService::toListItem);
+    }
+
+    /**
+     * Covert to UserListResponse, mapping each user once
+     *
+     * @param users
+     * @param total  kind of total the page carries
+     * @param mapper response of one user
+     * @return
+     */
+    private UserListResponse toUserList(Slice<UserSummary> users, TotalMode total, Function<UserSummary, UserDetailResponse> mapper) {
+        UserListResponse response = UserListResponse.builder()
+                .users(users.getContent().stream().map(mapper).toList())
+                .pageNo(users.getNumber())
+                .pageSize(users.getSize())
+                .totalMode(total)
+                .hasNext(users.hasNext())
+                .build();
+        if (users instanceof Page<UserSummary> page) {
+            response.setTotalPage(page.getTotalPages());
+            response.setTotalElements(page.getTotalElements());
+        }
+        return response;
+    }
+
+    /**
+     * Covert keyset page to UserListResponse
+     *
+     * @param users
+     * @return
+     */
+    private UserListResponse toUserList(KeysetPage<UserSummary> users) {
+        return UserListResponse.builder()
+                .users(users.getContent().stream().map(UserService::toListItem).toList())
+                .pageSize(users.getPageSize())
+                .nextCursor(users.getNextCursor())
+                .totalMode(TotalMode.none)
+                .hasNext(users.getNextCursor() != null)
+                .build();
+    }
+
+    private static UserDetailResponse toListItem(UserSummary user) {
+        return UserDetailResponse.builder()
                 .id(user.getId())
                 .firstName(user.getFirstName() + " " + user.getLastName())
                 .email(user.getEmail())
                 .phone(user.getPhone())
-                .build()
-        ).toList();
-
-        return UserListResponse.builder()
-                .users(list)
-                .pageNo(users.getNumber())
-                .pageSize(users.getSize())
-                .totalPage(users.getTotalPages())
                 .build();
     }
+
+    private record Chunked(long matched, long affected, int chunks) {
+    }
 }
@@ -6,4 +6,17 @@ public interface Constant {
         String SEARCH_OPERATOR = "(\\w+?)(:|<|>)(.*)";
         String SORT_OPERATOR = "(\\w+?)(:)(.*)";
     }
+
+    interface Sequence {
+        int ALLOCATION_SIZE = 50;
+        String USER = "tbl_user_seq";
+        String ADDRESS = "tbl_address_seq";
+    }
+
+    interface CacheRegion {
+        String USER = "user";
+        String ADDRESS = "address";
+        String USER_ADDRESSES = "user-addresses";
+        String USER_SEARCH = "user-search";
+    }
 }
@@ -0,0 +1,12 @@
+package com.sample.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    ndjson("application/x-ndjson"), csv("text/csv");
+
+    private final String contentType;
+}
@@ -0,0 +1,5 @@
+package com.sample.util;
+
+public enum TotalMode {
+    exact, none, estimate;
+}
@@ -0,0 +1,13 @@
+-- Run by Hibernate after it creates the schema (ddl-auto create/create-drop), columns and indexes that are not mapped by the entities
+ALTER TABLE tbl_user ADD COLUMN search_vector tsvector;
+CREATE INDEX tbl_user_search_vector_idx ON tbl_user USING gin (search_vector);
+CREATE INDEX tbl_address_user_id_idx ON tbl_address USING btree (user_id);
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX tbl_user_first_name_trgm_idx ON tbl_user USING gin (lower(first_name) gin_trgm_ops);
+CREATE INDEX tbl_user_last_name_trgm_idx ON tbl_user USING gin (lower(last_name) gin_trgm_ops);
+CREATE INDEX tbl_user_email_trgm_idx ON tbl_user USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX tbl_user_phone_trgm_idx ON tbl_user USING gin (phone gin_trgm_ops);
+CREATE INDEX tbl_user_first_name_pattern_idx ON tbl_user USING btree (lower(first_name) text_pattern_ops);
+CREATE INDEX tbl_user_last_name_pattern_idx ON tbl_user USING btree (lower(last_name) text_pattern_ops);
+CREATE INDEX tbl_user_email_pattern_idx ON tbl_user USING btree (lower(email) text_pattern_ops);
+CREATE INDEX tbl_user_phone_pattern_idx ON tbl_user USING btree (phone text_pattern_ops);
@@ -0,0 +1,51 @@
+package com.sample;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.util.Gender;
+import com.sample.util.UserType;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Users to add in tests. Username and email are random so users of one run never clash with users of earlier runs
+ * left in the database
+ */
+public final class TestUsers {
+
+	private TestUsers() {
+	}
+
+	public static UserCreationRequest newUser() {
+		return newUser(null);
+	}
+
+	/**
+	 * @param lastName last name, "Last " and the start of the username when null
+	 */
+	public static UserCreationRequest newUser(String lastName, UserCreationRequest.Address... addresses) {
+		String key = UUID.randomUUID().toString();
+
+		UserCreationRequest request = new UserCreationRequest();
+		request.setFirstName("First " + key.substring(0, 8));
+		request.setLastName(lastName != null ? lastName : "Last " + key.substring(0, 8));
+		request.setDateOfBirth("1990-01-01");
+		request.setGender(Gender.other);
+		request.setPhone("0123456789");
+		request.setEmail(key + "@sample.com");
+		request.setUsername(key);
+		request.setPassword("password");
+		request.setType(UserType.user);
+		request.setAddresses(Set.of(addresses));
+		return request;
+	}
+
+	public static UserCreationRequest.Address address(String street, String city, int addressType) {
+		UserCreationRequest.Address address = new UserCreationRequest.Address();
+		address.setStreet(street);
+		address.setCity(city);
+		address.setCountry("VN");
+		address.setAddressType(addressType);
+		return address;
+	}
+}
@@ -0,0 +1,68 @@
+package com.sample.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTests {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+	@Test
+	void requestsOverTheLimitAreShed() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("search", 2, 1, 10);
+		limit.bindTo(registry);
+
+		assertTrue(limit.tryAcquire());
+		assertTrue(limit.tryAcquire());
+		assertFalse(limit.tryAcquire());
+		assertEquals(2, limit.getInFlight());
+		assertEquals(1, registry.get("user.concurrency.rejected").tag("group", "search").functionCounter().count());
+
+		limit.release(FAST, true);
+		assertTrue(limit.tryAcquire());
+	}
+
+	@Test
+	void limitFollowsLatencyUnderLoad() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("search", 4, 1, 20);
+
+		saturate(limit, FAST, 50);
+		int grown = limit.getLimit();
+		assertTrue(grown > 4, "limit grows while latency holds, got " + grown);
+
+		saturate(limit, SLOW, 20);
+		assertTrue(limit.getLimit() < grown, "limit shrinks when latency rises, got " + limit.getLimit());
+	}
+
+	@Test
+	void lightLoadLeavesTheLimitAlone() {
+		AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit("crud", 20, 5, 200);
+
+		for (int i = 0; i < 100; i++) {
+			assertTrue(limit.tryAcquire());
+			limit.release(i % 2 == 0 ? FAST : SLOW, true);
+		}
+		assertEquals(20, limit.getLimit());
+	}
+
+	/**
+	 * Fill every slot, then complete them all with the given latency
+	 */
+	private static void saturate(AdaptiveConcurrencyLimit limit, long rtt, int rounds) {
+		for (int round = 0; round < rounds; round++) {
+			int acquired = 0;
+			while (limit.tryAcquire()) {
+				acquired++;
+			}
+			for (int i = 0; i < acquired; i++) {
+				limit.release(rtt, true);
+			}
+		}
+	}
+}
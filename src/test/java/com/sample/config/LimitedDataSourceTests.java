@@ -0,0 +1,63 @@
+package com.sample.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LimitedDataSourceTests {
+
+	private DataSource pool;
+	private LimitedDataSource limited;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		pool = mock(DataSource.class);
+		when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		limited = new LimitedDataSource(pool, "test", 1, 0, Duration.ofMillis(50));
+	}
+
+	@Test
+	void closingTheConnectionGivesThePermitBack() throws Exception {
+		Connection first = limited.getConnection();
+		assertThrows(SQLTransientConnectionException.class, limited::getConnection);
+
+		first.close();
+		first.close();
+		Connection second = limited.getConnection();
+		assertThrows(SQLTransientConnectionException.class, limited::getConnection);
+
+		Connection target = ((ConnectionProxy) second).getTargetConnection();
+		second.close();
+		verify(target).close();
+		verify(pool, times(2)).getConnection();
+	}
+
+	@Test
+	void queuedCallersTimeOut() throws Exception {
+		limited = new LimitedDataSource(pool, "test", 1, 1, Duration.ofMillis(50));
+		Connection first = limited.getConnection();
+
+		long start = System.nanoTime();
+		assertThrows(SQLTransientConnectionException.class, limited::getConnection);
+		assertTrue(System.nanoTime() - start >= Duration.ofMillis(50).toNanos());
+		first.close();
+	}
+
+	@Test
+	void aFailingPoolDoesNotKeepThePermit() throws Exception {
+		when(pool.getConnection()).thenThrow(new SQLTransientConnectionException("pool timeout"));
+		assertThrows(SQLTransientConnectionException.class, limited::getConnection);
+
+		reset(pool);
+		when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+		assertNotNull(limited.getConnection());
+	}
+}
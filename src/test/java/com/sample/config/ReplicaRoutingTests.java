@@ -0,0 +1,146 @@
+package com.sample.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing of reads between a primary and a replica pool. The replica is REPLICA_URL when set, otherwise a second pool
+ * on the primary stands in for it. Needs the PostgreSQL database of POSTGRES_URL, the one of the dev profile by default.
+ */
+class ReplicaRoutingTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private HikariDataSource primary;
+	private HikariDataSource replica;
+	private ReplicaLagMonitor lagMonitor;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate readWrite;
+	private TransactionTemplate readOnly;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		String url = Objects.requireNonNullElse(System.getenv("POSTGRES_URL"), "jdbc:postgresql://localhost:5432/postgres");
+		primary = pool("primary", url);
+		replica = pool("replica", Objects.requireNonNullElse(System.getenv("REPLICA_URL"), url));
+		setUp(replica);
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+		primary.close();
+		replica.close();
+	}
+
+	@Test
+	void readOnlyTransactionsReadFromTheReplica() {
+		assertEquals("replica", readOnly.execute(status -> pool()));
+		assertEquals("primary", readWrite.execute(status -> pool()));
+		assertEquals("primary", pool());
+		assertEquals(1, reads("replica", "replica"));
+	}
+
+	@Test
+	void pinnedReadsGoToThePrimary() {
+		assertEquals("primary", ReadRouting.onPrimary(() -> readOnly.execute(status -> pool())));
+		assertEquals(1, reads("primary", "pinned"));
+	}
+
+	@Test
+	void laggingReplicaFallsBackToThePrimary() {
+		ReflectionTestUtils.setField(lagMonitor, "lagSeconds", 30.0);
+		assertEquals("primary", readOnly.execute(status -> pool()));
+		assertEquals(1, reads("primary", "lagging"));
+
+		lagMonitor.check();
+		assertEquals("replica", readOnly.execute(status -> pool()));
+	}
+
+	@Test
+	void unavailableReplicaFallsBackToThePrimary() {
+		replica.close();
+		replica = pool("replica", "jdbc:postgresql://localhost:1/postgres");
+		setUp(replica);
+
+		assertFalse(lagMonitor.isUsable());
+		ReflectionTestUtils.setField(lagMonitor, "lagSeconds", 0.0);
+		assertEquals("primary", readOnly.execute(status -> pool()));
+		assertEquals(1, reads("primary", "unavailable"));
+		assertFalse(lagMonitor.isUsable());
+	}
+
+	@Test
+	void clientReadsItsWritesFromThePrimary() {
+		ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(Duration.ofSeconds(5));
+
+		MockHttpServletResponse written = new MockHttpServletResponse();
+		interceptor.preHandle(new MockHttpServletRequest("PUT", "/user/upd"), written, null);
+		Cookie cookie = written.getCookie(ReadYourWritesInterceptor.COOKIE);
+		assertNotNull(cookie);
+
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", "/user/list");
+		read.setCookies(cookie);
+		interceptor.preHandle(read, new MockHttpServletResponse(), null);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(read));
+		assertEquals("primary", readOnly.execute(status -> pool()));
+
+		MockHttpServletRequest other = new MockHttpServletRequest("GET", "/user/list");
+		interceptor.preHandle(other, new MockHttpServletResponse(), null);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(other));
+		assertEquals("replica", readOnly.execute(status -> pool()));
+	}
+
+	private void setUp(HikariDataSource replica) {
+		lagMonitor = new ReplicaLagMonitor(primary, replica, Duration.ofSeconds(1), Duration.ofSeconds(1), meterRegistry);
+		lagMonitor.check();
+
+		LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+		dataSource.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replica, lagMonitor, meterRegistry));
+		jdbcTemplate = new JdbcTemplate(dataSource);
+
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		readWrite = new TransactionTemplate(transactionManager);
+		readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+	}
+
+	private String pool() {
+		return jdbcTemplate.queryForObject("SELECT current_setting('application_name')", String.class);
+	}
+
+	private double reads(String target, String reason) {
+		return meterRegistry.get("user.datasource.reads").tag("target", target).tag("reason", reason).counter().count();
+	}
+
+	private static HikariDataSource pool(String name, String url) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setPoolName(name);
+		dataSource.setJdbcUrl(url);
+		dataSource.setUsername(Objects.requireNonNullElse(System.getenv("POSTGRES_USER"), "postgres"));
+		dataSource.setPassword(Objects.requireNonNullElse(System.getenv("POSTGRES_PASSWORD"), "password"));
+		dataSource.setMaximumPoolSize(2);
+		dataSource.setConnectionTimeout(1000);
+		dataSource.setInitializationFailTimeout(-1);
+		dataSource.addDataSourceProperty("ApplicationName", name);
+		return dataSource;
+	}
+}
@@ -0,0 +1,80 @@
+package com.sample.controller;
+
+import com.sample.config.AdaptiveConcurrencyLimit;
+import com.sample.config.ConcurrencyLimitInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests over the concurrency limit of their group are shed while the other groups keep being served. Needs the
+ * PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class ConcurrencyLimitTests {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+	@Test
+	void fullSearchGroupShedsOnlySearches() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		AdaptiveConcurrencyLimit search = concurrencyLimitInterceptor.getLimit(ConcurrencyLimitInterceptor.SEARCH);
+
+		int held = 0;
+		while (search.tryAcquire()) {
+			held++;
+		}
+		try {
+			mockMvc.perform(get("/user/search-with-criteria").param("search", "firstName:a"))
+					.andExpect(status().isServiceUnavailable())
+					.andExpect(header().string("Retry-After", "1"))
+					.andExpect(jsonPath("$.status").value(503));
+			mockMvc.perform(get("/user/search-text").param("q", "anna"))
+					.andExpect(status().isServiceUnavailable());
+			mockMvc.perform(get("/user/list-sorted-paged").param("pageNo", "0").param("pageSize", "1"))
+					.andExpect(status().isOk());
+		} finally {
+			for (int i = 0; i < held; i++) {
+				search.release(0, false);
+			}
+		}
+		assertEquals(0, search.getInFlight());
+	}
+
+	@Test
+	void fullBulkGroupLeavesLookupsByIds() throws Exception {
+		MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		AdaptiveConcurrencyLimit bulk = concurrencyLimitInterceptor.getLimit(ConcurrencyLimitInterceptor.BULK);
+
+		int held = 0;
+		while (bulk.tryAcquire()) {
+			held++;
+		}
+		try {
+			mockMvc.perform(patch("/user/batch").contentType(APPLICATION_JSON).content("[]"))
+					.andExpect(status().isServiceUnavailable());
+			mockMvc.perform(get("/user/batch").param("ids", "1"))
+					.andExpect(status().isOk());
+		} finally {
+			for (int i = 0; i < held; i++) {
+				bulk.release(0, false);
+			}
+		}
+		assertEquals(0, bulk.getInFlight());
+	}
+}
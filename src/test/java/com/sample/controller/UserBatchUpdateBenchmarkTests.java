@@ -0,0 +1,134 @@
+package com.sample.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.request.UserUpdateRequest;
+import com.sample.repository.UserCopyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares the throughput of profile changes sent one per PUT /user/upd call against PATCH /user/batch calls of
+ * 500 updates, through the whole MVC stack. The comparison runs with -Dbenchmark.rows=2000, by default only the
+ * results of one batch are checked. Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest
+class UserBatchUpdateBenchmarkTests {
+
+	private static final int BATCH_SIZE = 500;
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private MockMvc mockMvc;
+	private String run;
+	private List<Long> ids;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+	void batchedUpdatesAgainstSequentialPuts() throws Exception {
+		// whole batches
+		int updates = Integer.getInteger("benchmark.rows") / BATCH_SIZE * BATCH_SIZE;
+		copyUsers(2 * updates);
+
+		long start = System.nanoTime();
+		for (Long id : ids.subList(0, updates)) {
+			mockMvc.perform(put("/user/upd").contentType(APPLICATION_JSON).content(objectMapper.writeValueAsBytes(update(id))))
+					.andExpect(status().isAccepted());
+		}
+		long sequentialMs = (System.nanoTime() - start) / 1_000_000;
+
+		start = System.nanoTime();
+		for (int from = updates; from < 2 * updates; from += BATCH_SIZE) {
+			List<UserUpdateRequest> batch = ids.subList(from, from + BATCH_SIZE).stream().map(UserBatchUpdateBenchmarkTests::update).toList();
+			byte[] body = mockMvc.perform(patch("/user/batch").contentType(APPLICATION_JSON).content(objectMapper.writeValueAsBytes(batch)))
+					.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray();
+			assertEquals(BATCH_SIZE, objectMapper.readTree(body).get("updated").asInt());
+		}
+		long batchedMs = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(2L * updates, jdbcTemplate.queryForObject(
+				"SELECT count(*) FROM tbl_user WHERE last_name = ? AND email = 'changed-' || id || '@sample.com' AND version = 1", Long.class, run));
+		log.info("{} profile changes: sequential PUT {} ms ({} updates/s), PATCH batches of {} {} ms ({} updates/s)",
+				updates, sequentialMs, updates * 1000L / Math.max(sequentialMs, 1),
+				BATCH_SIZE, batchedMs, updates * 1000L / Math.max(batchedMs, 1));
+	}
+
+	@Test
+	void everyItemHasItsOwnResult() throws Exception {
+		copyUsers(3);
+		UserUpdateRequest stale = update(ids.get(0));
+		stale.setVersion(5L);
+		UserUpdateRequest unknown = update(Integer.MAX_VALUE);
+		UserUpdateRequest empty = new UserUpdateRequest();
+		empty.setId(ids.get(1));
+
+		List<UserUpdateRequest> batch = List.of(update(ids.get(2)), stale, unknown, empty, update(ids.get(2)));
+		JsonNode response = objectMapper.readTree(mockMvc.perform(patch("/user/batch").contentType(APPLICATION_JSON).content(objectMapper.writeValueAsBytes(batch)))
+				.andExpect(status().isOk()).andReturn().getResponse().getContentAsByteArray());
+
+		List<String> results = new ArrayList<>();
+		response.get("items").forEach(item -> results.add(item.get("result").asText()));
+		assertEquals(List.of("updated", "conflict", "not_found", "rejected", "rejected"), results);
+		assertEquals(1, response.get("items").get(0).get("version").asInt());
+	}
+
+	private void copyUsers(int count) {
+		run = "Batch" + UUID.randomUUID().toString().substring(0, 8);
+
+		List<UserCreationRequest> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(newUser(run));
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+		ids = jdbcTemplate.queryForList("SELECT id FROM tbl_user WHERE last_name = ? ORDER BY id", Long.class, run);
+	}
+
+	private static UserUpdateRequest update(long id) {
+		UserUpdateRequest request = new UserUpdateRequest();
+		request.setId(id);
+		request.setFirstName("Changed " + id);
+		request.setEmail("changed-" + id + "@sample.com");
+		request.setPhone("0987654321");
+		return request;
+	}
+}
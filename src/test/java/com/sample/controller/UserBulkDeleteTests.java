@@ -0,0 +1,53 @@
+package com.sample.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * POST /user/bulk-delete takes either ids or search expressions, a bounded number of ids. Needs the PostgreSQL
+ * database of the active profile.
+ */
+@SpringBootTest
+class UserBulkDeleteTests {
+
+	@Autowired
+	private WebApplicationContext context;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+	}
+
+	@Test
+	void eitherIdsOrSearchIsRequired() throws Exception {
+		mockMvc.perform(post("/user/bulk-delete").contentType(APPLICATION_JSON).content("{}"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.messages").value("Either ids or search must be given"));
+		mockMvc.perform(post("/user/bulk-delete").contentType(APPLICATION_JSON).content("{\"ids\":[1],\"search\":[\"lastName:x\"]}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void tooManyIdsAreRejected() throws Exception {
+		String ids = LongStream.rangeClosed(1, 10001).mapToObj(Long::toString).collect(Collectors.joining(","));
+		mockMvc.perform(post("/user/bulk-delete").contentType(APPLICATION_JSON).content("{\"ids\":[" + ids + "]}"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(post("/user/bulk-delete").contentType(APPLICATION_JSON).content("{\"ids\":[0]}"))
+				.andExpect(status().isBadRequest());
+	}
+}
@@ -0,0 +1,144 @@
+package com.sample.controller;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.repository.UserCopyRepository;
+import com.sample.service.UserCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Compares throughput and p50/p99/max latency of GET /user/user/{id} on cold users between the platform-thread mode,
+ * 200 request threads like the Tomcat default, and the virtual-thread mode, one virtual thread per request behind the
+ * connection limiter. Half of the connection pool is taken by slow queries during both runs. Latency counts from the
+ * arrival of the request, so the wait for a platform thread is included.
+ * Needs Java 21 and its own context, run alone with -P dev,java21 -Dtest=VirtualThreadLoadTests -Dbenchmark.requests=20000.
+ * Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest(properties = "user.connection-limiter.enabled=true")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@EnabledIfSystemProperty(named = "benchmark.requests", matches = "\\d+")
+class VirtualThreadLoadTests {
+
+	private static final int PLATFORM_THREADS = 200;
+	private static final int SLOW_QUERIES = 5;
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private MockMvc mockMvc;
+	private int requests;
+	private List<Long> ids;
+
+	@BeforeEach
+	void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		requests = Integer.getInteger("benchmark.requests");
+
+		String run = "Load" + UUID.randomUUID().toString().substring(0, 8);
+		List<UserCreationRequest> users = new ArrayList<>(requests);
+		for (int i = 0; i < requests; i++) {
+			users.add(newUser(run));
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+		ids = jdbcTemplate.queryForList("SELECT id FROM tbl_user WHERE last_name = ? ORDER BY id", Long.class, run);
+	}
+
+	@Test
+	void virtualThreadsAgainstPlatformThreads() throws Exception {
+		Result platform = load("platform", Executors.newFixedThreadPool(PLATFORM_THREADS));
+		Result virtual = load("virtual", (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+
+		assertTrue(platform.ok() > 0);
+		assertTrue(virtual.ok() > 0);
+	}
+
+	private Result load(String mode, ExecutorService executor) throws Exception {
+		userCache.evictAll();
+		AtomicBoolean spike = new AtomicBoolean(true);
+		ExecutorService slowQueries = Executors.newFixedThreadPool(SLOW_QUERIES);
+		for (int i = 0; i < SLOW_QUERIES; i++) {
+			slowQueries.execute(() -> {
+				while (spike.get()) {
+					jdbcTemplate.execute("SELECT pg_sleep(0.2)");
+				}
+			});
+		}
+
+		long[] latencies = new long[requests];
+		int ok = 0;
+		long start = System.nanoTime();
+		try {
+			List<Future<Integer>> calls = new ArrayList<>(requests);
+			for (int i = 0; i < requests; i++) {
+				int call = i;
+				long arrival = System.nanoTime();
+				calls.add(executor.submit(() -> {
+					int status = mockMvc.perform(get("/user/user/{id}", ids.get(call))).andReturn().getResponse().getStatus();
+					latencies[call] = System.nanoTime() - arrival;
+					return status;
+				}));
+			}
+			for (Future<Integer> call : calls) {
+				if (call.get(5, TimeUnit.MINUTES) == 200) {
+					ok++;
+				}
+			}
+		} finally {
+			executor.shutdown();
+			spike.set(false);
+			slowQueries.shutdown();
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		Arrays.sort(latencies);
+		log.info("{} threads: {} requests, {} ok, {} ms ({} requests/s), p50 {} ms, p99 {} ms, max {} ms",
+				mode, requests, ok, elapsedMs, requests * 1000L / Math.max(elapsedMs, 1),
+				percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1_000_000);
+		return new Result(ok, elapsedMs);
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1_000_000;
+	}
+
+	private record Result(int ok, long elapsedMs) {
+	}
+}
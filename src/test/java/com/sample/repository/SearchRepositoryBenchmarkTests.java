@@ -0,0 +1,125 @@
+package com.sample.repository;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.model.UserEntity;
+import com.sample.repository.criteria.SearchCriteria;
+import com.sample.repository.criteria.UserSearchQueryCriteriaConsumer;
+import com.sample.repository.projection.UserSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares p50/p99 latency of the single statement page + total (count(*) OVER ()) against the page query followed
+ * by a count query, at 100%, 10% and 1% selectivity. The comparison runs with -Dbenchmark.rows=20000, by default
+ * only the two queries are checked to return the same page. Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest
+class SearchRepositoryBenchmarkTests {
+
+	private static final int USERS = 2000;
+	private static final int WARM_UP = 20;
+	private static final int ITERATIONS = 200;
+	private static final Pageable PAGE = PageRequest.of(3, 20, Sort.by("firstName"));
+
+	@Autowired
+	private SearchRepository searchRepository;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private String run;
+
+	@Test
+	void singleStatementReturnsThePageOfPageThenCount() {
+		copyUsers(USERS);
+		for (String selectivity : List.of("all", "ten", "one")) {
+			Specification<UserEntity> specification = specification("firstName:" + run, "lastName:" + selectivity);
+
+			Page<UserSummary> single = searchRepository.findPageWithTotal(PAGE, specification);
+			Page<UserSummary> two = searchRepository.findPageThenCount(PAGE, specification);
+			assertEquals(two.getTotalElements(), single.getTotalElements());
+			assertEquals(two.getContent().stream().map(UserSummary::getId).toList(), single.getContent().stream().map(UserSummary::getId).toList());
+		}
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+	void singleStatementAgainstPageThenCount() {
+		copyUsers(Integer.getInteger("benchmark.rows"));
+		for (String selectivity : List.of("all", "ten", "one")) {
+			Specification<UserEntity> specification = specification("firstName:" + run, "lastName:" + selectivity);
+
+			Page<UserSummary> single = searchRepository.findPageWithTotal(PAGE, specification);
+			long[] singleNanos = measure(() -> searchRepository.findPageWithTotal(PAGE, specification));
+			long[] twoNanos = measure(() -> searchRepository.findPageThenCount(PAGE, specification));
+
+			log.info("{} matching rows: count(*) OVER () p50={} us p99={} us, page + count p50={} us p99={} us",
+					single.getTotalElements(), percentile(singleNanos, 50), percentile(singleNanos, 99),
+					percentile(twoNanos, 50), percentile(twoNanos, 99));
+		}
+	}
+
+	private void copyUsers(int count) {
+		run = UUID.randomUUID().toString().substring(0, 8);
+
+		List<UserCreationRequest> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			UserCreationRequest user = newUser((i % 100 == 0 ? "one" : "") + (i % 10 == 0 ? "ten" : "") + "all");
+			user.setFirstName(run + "-" + i);
+			users.add(user);
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+	}
+
+	private Specification<UserEntity> specification(String... search) {
+		List<SearchCriteria> params = Arrays.stream(search)
+				.map(s -> s.split(":"))
+				.map(kv -> new SearchCriteria(kv[0], ":", kv[1]))
+				.toList();
+		return (root, query, builder) -> {
+			UserSearchQueryCriteriaConsumer consumer = new UserSearchQueryCriteriaConsumer(builder.conjunction(), builder, root);
+			params.forEach(consumer);
+			return consumer.getPredicate();
+		};
+	}
+
+	private static long[] measure(Supplier<Page<UserSummary>> query) {
+		for (int i = 0; i < WARM_UP; i++) {
+			query.get();
+		}
+		long[] nanos = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			query.get();
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+
+	private static long percentile(long[] sortedNanos, int percentile) {
+		return sortedNanos[Math.min(sortedNanos.length - 1, sortedNanos.length * percentile / 100)] / 1000;
+	}
+}
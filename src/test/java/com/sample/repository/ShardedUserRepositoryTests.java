@@ -0,0 +1,272 @@
+package com.sample.repository;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.exception.ServiceUnavailableException;
+import com.sample.repository.criteria.SearchCriteria;
+import com.sample.repository.criteria.UserSearchAttributes;
+import com.sample.repository.projection.UserSummary;
+import com.sample.util.Gender;
+import com.sample.util.TotalMode;
+import com.sample.util.UserStatus;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Sharded storage against several databases created from initdb.sql next to the PostgreSQL database of POSTGRES_URL,
+ * the one of the dev profile by default. Pages read from the shards must be the pages of one database holding the same
+ * users with the same ids.
+ */
+class ShardedUserRepositoryTests {
+
+	private static final int SHARDS = 3;
+	private static final int POOL_SIZE = 4;
+	private static final String[] FIRST_NAMES = {"Anna", "anna", "Binh", "Chi", "Dung", "Émile"};
+	private static final String[] LAST_NAMES = {"Nguyen", "Tran", "Le", "Pham"};
+	private static final String COPY_USER = """
+			INSERT INTO tbl_user (id, created_at, updated_at, first_name, last_name, date_of_birth, gender, phone, email, username, password, type, status, version)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+
+	private static JdbcTemplate admin;
+	private static final List<HikariDataSource> pools = new ArrayList<>();
+	private static ShardedUserRepository sharded;
+	private static ShardedUserRepository reference;
+
+	@BeforeAll
+	static void createDatabases() {
+		String url = Objects.requireNonNullElse(System.getenv("POSTGRES_URL"), "jdbc:postgresql://localhost:5432/postgres");
+		admin = new JdbcTemplate(pool("shard-admin", url));
+		List<HikariDataSource> shards = new ArrayList<>();
+		for (int i = 0; i <= SHARDS; i++) {
+			String name = "shard_test_" + i;
+			admin.execute("DROP DATABASE IF EXISTS " + name + " WITH (FORCE)");
+			admin.execute("CREATE DATABASE " + name);
+			HikariDataSource pool = pool(name, url.substring(0, url.lastIndexOf('/') + 1) + name);
+			new ResourceDatabasePopulator(new FileSystemResource("initdb.sql")).execute(pool);
+			shards.add(pool);
+		}
+		sharded = new ShardedUserRepository(shards.subList(0, SHARDS), POOL_SIZE);
+		reference = new ShardedUserRepository(shards.subList(SHARDS, SHARDS + 1), POOL_SIZE);
+	}
+
+	@AfterAll
+	static void dropDatabases() throws Exception {
+		sharded.close();
+		reference.close();
+		for (int i = 0; i <= SHARDS; i++) {
+			admin.execute("DROP DATABASE IF EXISTS shard_test_" + i + " WITH (FORCE)");
+		}
+		pools.forEach(HikariDataSource::close);
+	}
+
+	@BeforeEach
+	void clear() {
+		for (int i = 0; i <= SHARDS; i++) {
+			shard(i).execute("TRUNCATE tbl_address, tbl_user");
+		}
+	}
+
+	@Test
+	void idsNameTheShardHoldingTheUser() {
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < 60; i++) {
+			assertTrue(ids.add(sharded.insert(user(i))), "ids are unique over the shards");
+		}
+
+		int users = 0;
+		for (int i = 0; i < SHARDS; i++) {
+			List<Long> shardIds = shard(i).queryForList("SELECT id FROM tbl_user", Long.class);
+			assertFalse(shardIds.isEmpty(), "users spread over every shard");
+			int index = i;
+			assertTrue(shardIds.stream().allMatch(id -> ShardedUserRepository.shardOf(id) == index));
+			assertEquals(0, shard(i).queryForObject("SELECT count(*) FROM tbl_address a LEFT JOIN tbl_user u ON u.id = a.user_id WHERE u.id IS NULL", Integer.class),
+					"addresses live on the shard of their user");
+			assertEquals(0, shard(i).queryForObject("SELECT count(*) FROM tbl_user WHERE search_vector IS NULL", Integer.class));
+			users += shardIds.size();
+		}
+		assertEquals(60, users);
+	}
+
+	@Test
+	void singleUserChangesStayOnItsShard() {
+		for (int i = 0; i < 12; i++) {
+			sharded.insert(user(i));
+		}
+		long id = sharded.insert(user(100));
+		JdbcTemplate own = shard(ShardedUserRepository.shardOf(id));
+		Map<Integer, Integer> before = counts();
+
+		assertEquals("First100", sharded.findSummaryById(id).orElseThrow().getFirstName());
+		assertEquals(1L, sharded.updateColumns(id, 0L, Map.of("first_name", "Renamed")));
+		assertNull(sharded.updateColumns(id, 0L, Map.of("first_name", "Stale")), "stale version");
+		assertEquals("Renamed", own.queryForObject("SELECT first_name FROM tbl_user WHERE id = ?", String.class, id));
+		assertEquals(List.of(id), sharded.updateStatus(List.of(id), UserStatus.active));
+		assertEquals(before, counts());
+
+		LongAdder addresses = new LongAdder();
+		assertEquals(List.of(id), sharded.deleteUsers(List.of(id), addresses));
+		assertEquals(2, addresses.sum());
+		assertFalse(sharded.existsById(id));
+		before.merge(ShardedUserRepository.shardOf(id), -1, Integer::sum);
+		assertEquals(before, counts());
+
+		long unknownShard = 7L * ShardedUserRepository.MAX_SHARDS + SHARDS;
+		assertTrue(sharded.findSummaryById(unknownShard).isEmpty());
+		assertNull(sharded.updateColumns(unknownShard, null, Map.of("first_name", "Nobody")));
+	}
+
+	@Test
+	void pagesMatchOneDatabase() {
+		for (int i = 0; i < 80; i++) {
+			sharded.insert(user(i));
+		}
+		copyToReference();
+
+		List<Sort> sorts = List.of(Sort.unsorted(), Sort.by("firstName"), Sort.by(Sort.Order.desc("lastName"), Sort.Order.asc("firstName")),
+				Sort.by("gender"), Sort.by(Sort.Order.desc("phone")), Sort.by(Sort.Order.desc("createdAt")));
+		List<List<SearchCriteria>> filters = List.of(List.of(), List.of(UserSearchAttributes.criteria("firstName", ":", "ann")),
+				List.of(UserSearchAttributes.criteria("gender", ":", "female"), UserSearchAttributes.criteria("lastName", ":", "ran")));
+
+		for (Sort sort : sorts) {
+			for (List<SearchCriteria> filter : filters) {
+				for (int page = 0; page < 13; page++) {
+					Pageable pageable = PageRequest.of(page, 7, sort);
+					String name = sort + " " + filter.size() + " filters, page " + page;
+
+					Page<UserSummary> expected = (Page<UserSummary>) reference.findPage(pageable, filter, TotalMode.exact);
+					Page<UserSummary> actual = (Page<UserSummary>) sharded.findPage(pageable, filter, TotalMode.exact);
+					assertEquals(ids(expected), ids(actual), name);
+					assertEquals(expected.getTotalElements(), actual.getTotalElements(), name);
+
+					Slice<UserSummary> slice = sharded.findPage(pageable, filter, TotalMode.none);
+					assertEquals(ids(expected), ids(slice), name);
+					assertEquals(expected.hasNext(), slice.hasNext(), name);
+				}
+			}
+		}
+	}
+
+	@Test
+	void queriesBeyondTheConnectionsOfTheShardsAreRejected() throws Exception {
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		List<DataSource> blocked = List.of(mock(DataSource.class), mock(DataSource.class));
+		for (DataSource dataSource : blocked) {
+			when(dataSource.getConnection()).thenAnswer(invocation -> {
+				started.countDown();
+				release.await();
+				throw new SQLException("released");
+			});
+		}
+		ShardedUserRepository saturated = new ShardedUserRepository(blocked, 1);
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			// one id on each shard takes both query threads
+			Future<?> running = caller.submit(() -> saturated.findSummaryByIdIn(List.of(64L, 1L)));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			assertThrows(ServiceUnavailableException.class, () -> saturated.findSummaryByIdIn(List.of(64L, 1L)));
+
+			release.countDown();
+			assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			caller.shutdown();
+			saturated.close();
+		}
+	}
+
+	/**
+	 * Copy the users of every shard with their ids to the reference database
+	 */
+	private static void copyToReference() {
+		for (int i = 0; i < SHARDS; i++) {
+			List<Object[]> rows = shard(i).query("SELECT id, created_at, updated_at, first_name, last_name, date_of_birth, gender::text, phone, "
+							+ "email, username, password, type::text, status::text, version FROM tbl_user",
+					(rs, rowNum) -> {
+						Object[] row = new Object[14];
+						for (int column = 0; column < row.length; column++) {
+							row[column] = rs.getObject(column + 1);
+						}
+						return row;
+					});
+			shard(SHARDS).batchUpdate(COPY_USER, rows, rows.size(), (ps, row) -> {
+				for (int column = 0; column < row.length; column++) {
+					if (row[column] instanceof String text) {
+						// untyped so enum names bind to the enum types of the columns
+						ps.setObject(column + 1, text, Types.OTHER);
+					} else {
+						ps.setObject(column + 1, row[column]);
+					}
+				}
+			});
+		}
+	}
+
+	private static Map<Integer, Integer> counts() {
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (int i = 0; i < SHARDS; i++) {
+			counts.put(i, shard(i).queryForObject("SELECT count(*) FROM tbl_user", Integer.class));
+		}
+		return counts;
+	}
+
+	private static List<Long> ids(Slice<UserSummary> users) {
+		return users.getContent().stream().map(UserSummary::getId).toList();
+	}
+
+	private static JdbcTemplate shard(int index) {
+		return new JdbcTemplate(pools.get(index + 1));
+	}
+
+	private static UserCreationRequest user(int i) {
+		UserCreationRequest user = newUser(LAST_NAMES[i % LAST_NAMES.length], address("Street " + i, "Hanoi", 1), address(null, "Hue", 2));
+		user.setFirstName(i >= 100 ? "First" + i : FIRST_NAMES[i % FIRST_NAMES.length]);
+		user.setGender(Gender.values()[i % Gender.values().length]);
+		user.setPhone(i % 5 == 0 ? null : "09" + (i % 9));
+		return user;
+	}
+
+	private static HikariDataSource pool(String name, String url) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setPoolName(name);
+		dataSource.setJdbcUrl(url);
+		dataSource.setUsername(Objects.requireNonNullElse(System.getenv("POSTGRES_USER"), "postgres"));
+		dataSource.setPassword(Objects.requireNonNullElse(System.getenv("POSTGRES_PASSWORD"), "password"));
+		dataSource.setMaximumPoolSize(POOL_SIZE);
+		pools.add(dataSource);
+		return dataSource;
+	}
+}
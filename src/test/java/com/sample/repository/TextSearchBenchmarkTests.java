@@ -0,0 +1,139 @@
+package com.sample.repository;
+
+import com.sample.repository.criteria.SearchAttribute;
+import com.sample.repository.criteria.TextSearchPlanner;
+import com.sample.repository.criteria.UserSearchAttributes;
+import com.sample.util.SearchOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Compares p50/p99 latency of pattern searches on a synthetic copy of tbl_user: the former case-sensitive LIKE on
+ * an unindexed table against the predicates of TextSearchPlanner with the pattern indexes of initdb.sql.
+ * Takes a few minutes, run with -Dbenchmark.rows=2000000. Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+class TextSearchBenchmarkTests {
+
+	private static final String TABLE = "tbl_user_text_search_benchmark";
+	private static final int WARM_UP = 3;
+	private static final int ITERATIONS = 20;
+
+	private static final String LAST_NAMES = "'{Nguyen,Tran,Le,Pham,Hoang,Huynh,Phan,Vu,Vo,Dang,Bui,Do,Ho,Ngo,Duong,Ly,"
+			+ "Smith,Johnson,Williams,Brown,Jones,Garcia,Miller,Davis,Rodriguez,Martinez,Wilson,Anderson,Taylor,Thomas}'::text[]";
+
+	private static final List<Search> SEARCHES = List.of(
+			new Search("firstName", SearchOperation.CONTAINS, "a3f9"),
+			new Search("firstName", SearchOperation.STARTS_WITH, "Tuan7"),
+			new Search("lastName", SearchOperation.CONTAINS, "RODRI"),
+			new Search("email", SearchOperation.CONTAINS, "user12345"),
+			new Search("email", SearchOperation.ENDS_WITH, "99@sample.com"),
+			new Search("phone", SearchOperation.ENDS_WITH, "45678"));
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		long rows = Long.getLong("benchmark.rows");
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+		jdbcTemplate.execute("CREATE UNLOGGED TABLE " + TABLE + " (LIKE tbl_user INCLUDING DEFAULTS)");
+		jdbcTemplate.execute("INSERT INTO " + TABLE + " (id, first_name, last_name, email, phone)"
+				+ " SELECT i, (ARRAY['Tuan','Linh','Minh','Anna','John','Mary','Hung','Lan'])[1 + i % 8] || substr(md5(i::text), 1, 6),"
+				+ " (" + LAST_NAMES + ")[1 + (i / 8) % 30],"
+				+ " 'user' || i || '@sample.com',"
+				+ " '09' || lpad(((i::bigint * 7919) % 100000000)::text, 8, '0')"
+				+ " FROM generate_series(1, " + rows + ") i");
+		jdbcTemplate.execute("ANALYZE " + TABLE);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+	}
+
+	@Test
+	void plannedPredicatesAgainstUnindexedLike() {
+		long[][] before = new long[SEARCHES.size()][];
+		for (int i = 0; i < SEARCHES.size(); i++) {
+			Search search = SEARCHES.get(i);
+			before[i] = measure("SELECT count(*) FROM " + TABLE + " WHERE " + search.attribute().getColumn() + " LIKE ?", search.legacyPattern());
+		}
+
+		createPatternIndexes();
+		for (int i = 0; i < SEARCHES.size(); i++) {
+			Search search = SEARCHES.get(i);
+			String pattern = TextSearchPlanner.pattern(search.attribute(), search.operation(), search.value());
+			String sql = "SELECT count(*) FROM " + TABLE + " WHERE " + TextSearchPlanner.condition(search.attribute(), pattern);
+
+			String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, pattern));
+			assertFalse(plan.contains("Seq Scan"), plan);
+			assertEquals(jdbcTemplate.queryForObject(sql, Long.class, pattern), jdbcTemplate.queryForObject(
+					"SELECT count(*) FROM " + TABLE + " WHERE " + search.attribute().getColumn() + " ILIKE ?",
+					Long.class, pattern), "planned predicate matches the case-insensitive scan");
+
+			long[] after = measure(sql, pattern);
+			log.info("{} {} '{}': unindexed LIKE p50={} us p99={} us, planned p50={} us p99={} us, plan {}",
+					search.key(), search.operation(), search.value(),
+					percentile(before[i], 50), percentile(before[i], 99), percentile(after, 50), percentile(after, 99),
+					plan.lines().reduce((first, last) -> last).orElse("").trim());
+		}
+	}
+
+	private void createPatternIndexes() {
+		jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+		for (String column : List.of("first_name", "last_name", "email", "phone")) {
+			String expression = column.equals("phone") ? column : "lower(" + column + ")";
+			jdbcTemplate.execute("CREATE INDEX ON " + TABLE + " USING gin (" + expression + " gin_trgm_ops)");
+			jdbcTemplate.execute("CREATE INDEX ON " + TABLE + " USING btree (" + expression + " text_pattern_ops)");
+		}
+		jdbcTemplate.execute("ANALYZE " + TABLE);
+	}
+
+	private long[] measure(String sql, String pattern) {
+		for (int i = 0; i < WARM_UP; i++) {
+			jdbcTemplate.queryForObject(sql, Long.class, pattern);
+		}
+		long[] nanos = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			jdbcTemplate.queryForObject(sql, Long.class, pattern);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+
+	private static long percentile(long[] sortedNanos, int percentile) {
+		return sortedNanos[Math.min(sortedNanos.length - 1, sortedNanos.length * percentile / 100)] / 1000;
+	}
+
+	private record Search(String key, SearchOperation operation, String value) {
+
+		SearchAttribute attribute() {
+			return UserSearchAttributes.get(key);
+		}
+
+		String legacyPattern() {
+			return switch (operation) {
+				case STARTS_WITH -> value + "%";
+				case ENDS_WITH -> "%" + value;
+				default -> "%" + value + "%";
+			};
+		}
+	}
+}
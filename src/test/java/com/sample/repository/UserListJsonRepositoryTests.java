@@ -0,0 +1,58 @@
+package com.sample.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class UserListJsonRepositoryTests {
+
+	private JdbcTemplate jdbcTemplate;
+	private UserListJsonRepository repository;
+	private ByteArrayOutputStream out;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		repository = new UserListJsonRepository(jdbcTemplate, new ObjectMapper());
+		out = new ByteArrayOutputStream();
+	}
+
+	@Test
+	void aFailingQueryWritesNothing() {
+		when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(ResultSetExtractor.class)))
+				.thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+		assertThrows(DataAccessResourceFailureException.class, () -> repository.writePage(out, PageRequest.of(0, 10), List.of()));
+		assertEquals(0, out.size(), "the error response can still be sent");
+	}
+
+	@Test
+	void aFailureAfterTheFirstRowLeavesInvalidJson() throws Exception {
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.next()).thenReturn(true).thenThrow(new SQLException("connection lost"));
+		when(rs.getString(anyInt())).thenReturn("value");
+		when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(ResultSetExtractor.class)))
+				.thenAnswer(invocation -> invocation.getArgument(2, ResultSetExtractor.class).extractData(rs));
+
+		assertThrows(SQLException.class, () -> repository.writePage(out, PageRequest.of(0, 10), List.of()));
+		String body = out.toString();
+		assertTrue(body.startsWith("{\"pageNo\":0,\"pageSize\":10,\"users\":[{\"id\":0"), body);
+		assertThrows(JsonProcessingException.class, () -> new ObjectMapper().readTree(body), "the client sees a truncated page");
+	}
+}
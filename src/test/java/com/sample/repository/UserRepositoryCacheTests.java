@@ -0,0 +1,81 @@
+package com.sample.repository;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.model.UserEntity;
+import com.sample.service.UserService;
+import com.sample.util.Constant;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Repeated lookups of UserRepository are served by the second-level and query caches.
+ * Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserRepositoryCacheTests {
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+
+	private String username;
+
+	private long id;
+
+	@BeforeEach
+	void setUp() {
+		UserCreationRequest user = newUser();
+		username = user.getUsername();
+		id = userService.addUser(user);
+		entityManagerFactory.getCache().evictAll();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void findByIdIsServedFromSecondLevelCache() {
+		userRepository.findById(id);
+		userRepository.findById(id);
+
+		assertEquals(1, statistics.getPrepareStatementCount(), "statements of two lookups");
+		assertEquals(1, statistics.getDomainDataRegionStatistics(Constant.CacheRegion.USER).getHitCount());
+	}
+
+	@Test
+	void findByUsernameIsServedFromQueryCache() {
+		UserEntity first = userRepository.findByUsername(username);
+		UserEntity second = userRepository.findByUsername(username);
+
+		assertEquals(first.getId(), second.getId());
+		assertEquals(1, statistics.getPrepareStatementCount(), "statements of two lookups");
+		assertEquals(1, statistics.getQueryCacheHitCount());
+	}
+
+	@Test
+	void regionStatisticsAreExported() {
+		userRepository.findById(id);
+
+		assertNotNull(meterRegistry.find("hibernate.second.level.cache.requests").tag("region", Constant.CacheRegion.USER).meter());
+		assertNotNull(meterRegistry.find("hibernate.second.level.cache.size").tag("region", Constant.CacheRegion.USER).gauge());
+	}
+}
@@ -0,0 +1,42 @@
+package com.sample.repository.criteria;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.SearchOperation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextSearchPlannerTests {
+
+	@Test
+	void namesAreFoldedAndWildcardsOfValuesEscaped() {
+		SearchAttribute firstName = UserSearchAttributes.get("firstName");
+
+		assertEquals("lower(first_name) LIKE ?", TextSearchPlanner.condition(firstName, "%mary%"));
+		assertEquals("%mary\\_ann%", TextSearchPlanner.pattern(firstName, SearchOperation.CONTAINS, "Mary_Ann"));
+		assertEquals("jo%", TextSearchPlanner.pattern(firstName, SearchOperation.STARTS_WITH, "Jo"));
+		assertEquals("%son", TextSearchPlanner.pattern(firstName, SearchOperation.ENDS_WITH, "SON"));
+		assertEquals("first%", TextSearchPlanner.pattern(firstName, SearchOperation.LIKE, "First%"));
+	}
+
+	@Test
+	void otherTextKeepsItsCase() {
+		SearchAttribute username = UserSearchAttributes.get("username");
+
+		assertEquals("username LIKE ?", TextSearchPlanner.condition(username, "%ad%"));
+		assertEquals("%Admin%", TextSearchPlanner.pattern(username, SearchOperation.CONTAINS, "Admin"));
+	}
+
+	@Test
+	void unanchoredPatternsWithoutATrigramScanTheTable() {
+		SearchAttribute email = UserSearchAttributes.get("email");
+
+		assertEquals("lower(email) LIKE ?", TextSearchPlanner.condition(email, TextSearchPlanner.pattern(email, SearchOperation.STARTS_WITH, "j")));
+		assertEquals("lower(email) LIKE ?", TextSearchPlanner.condition(email, TextSearchPlanner.pattern(email, SearchOperation.LIKE, "%a%b%com")));
+		assertEquals("%jo%", TextSearchPlanner.pattern(email, SearchOperation.CONTAINS, "jo"));
+		assertEquals("email ILIKE ?", TextSearchPlanner.condition(email, "%jo%"));
+		assertEquals("email ILIKE ?", TextSearchPlanner.condition(email, TextSearchPlanner.pattern(email, SearchOperation.ENDS_WITH, "")));
+		assertEquals("email ILIKE ?", TextSearchPlanner.condition(email, TextSearchPlanner.pattern(email, SearchOperation.LIKE, "%a_b%c")));
+		assertThrows(InvalidDataException.class, () -> TextSearchPlanner.pattern(email, SearchOperation.EQUALITY, "jo"));
+	}
+}
@@ -0,0 +1,39 @@
+package com.sample.repository.criteria;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.Gender;
+import com.sample.util.SearchOperation;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSearchAttributesTests {
+
+	@Test
+	void valuesAreTypedByTheColumn() {
+		assertEquals(Gender.male, UserSearchAttributes.criteria("gender", ":", "male").getValue());
+		assertEquals(42L, UserSearchAttributes.criteria("id", ">", "42").getValue());
+		assertEquals(Timestamp.valueOf("2024-03-01 00:00:00"), UserSearchAttributes.criteria("createdAt", ">", "2024-03-01").getValue());
+		assertEquals(Timestamp.valueOf("2024-03-01 10:30:00"), UserSearchAttributes.criteria("updatedAt", "<", "2024-03-01T10:30:00").getValue());
+		assertEquals("jo", UserSearchAttributes.criteria("firstName", ":", "jo").getValue());
+		assertEquals("created_at", UserSearchAttributes.get("createdAt").getColumn());
+	}
+
+	@Test
+	void unknownKeysAndUnsupportedOperationsAreRejected() {
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.get("nope"));
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.get("password"));
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.get("addressEntities"));
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.criteria("gender", ">", "male"));
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.get("status").check(SearchOperation.CONTAINS));
+	}
+
+	@Test
+	void invalidValuesAreRejected() {
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.criteria("gender", ":", "unknown"));
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.criteria("id", ":", "abc"));
+		assertThrows(InvalidDataException.class, () -> UserSearchAttributes.criteria("createdAt", ">", "yesterday"));
+	}
+}
@@ -0,0 +1,55 @@
+package com.sample.repository.keyset;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.Gender;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTests {
+
+	@Test
+	void roundTripsTypedKeys() {
+		Date createdAt = new Date();
+
+		KeysetCursor date = KeysetCursor.decode(KeysetCursor.of("createdAt", false, 7, createdAt).encode());
+		assertEquals("createdAt", date.getProperty());
+		assertFalse(date.isDescending());
+		assertEquals(7, date.getId());
+		assertEquals(createdAt, date.typedKey(Date.class));
+
+		KeysetCursor gender = KeysetCursor.decode(KeysetCursor.of("gender", true, 8, Gender.female).encode());
+		assertTrue(gender.isDescending());
+		assertEquals(Gender.female, gender.typedKey(Gender.class));
+
+		KeysetCursor name = KeysetCursor.decode(KeysetCursor.of("firstName", false, 9, "aé b").encode());
+		assertEquals("aé b", name.typedKey(String.class));
+	}
+
+	@Test
+	void keepsMicrosecondsOfTimestamps() {
+		Timestamp updatedAt = Timestamp.valueOf("2024-01-01 00:00:00.123456");
+
+		Object key = KeysetCursor.decode(KeysetCursor.of("updatedAt", false, 7, updatedAt).encode()).typedKey(Date.class);
+		assertEquals(updatedAt, key);
+		assertEquals(123456000, ((Timestamp) key).getNanos());
+		assertThrows(InvalidDataException.class, () -> new KeysetCursor("updatedAt", false, 7, "1704067200123").typedKey(Date.class));
+	}
+
+	@Test
+	void keepsNullKey() {
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.of("firstName", false, 10, null).encode());
+		assertNull(cursor.getKey());
+		assertNull(cursor.typedKey(String.class));
+	}
+
+	@Test
+	void rejectsTamperedToken() {
+		assertThrows(InvalidDataException.class, () -> KeysetCursor.decode("not a cursor"));
+		KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.of("gender", false, 1, "alien").encode());
+		assertThrows(InvalidDataException.class, () -> cursor.typedKey(Gender.class));
+	}
+}
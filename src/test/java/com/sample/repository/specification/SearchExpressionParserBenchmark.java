@@ -0,0 +1,63 @@
+package com.sample.repository.specification;
+
+import com.google.common.base.Joiner;
+import com.sample.model.UserEntity;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.sample.util.SearchOperation.SIMPLE_OPERATION_SET;
+
+/**
+ * Parse cost of the search params of one specification search request: the former flat list parsed with a regex
+ * compiled per request, against the expression parser with and without its cache.
+ * Not part of the unit tests, run main() with the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchExpressionParserBenchmark {
+
+	private static final String[] FLAT = {"firstName:*jo*", "lastName:smith", "status:active"};
+	private static final String EXPRESSION = "firstName:*jo* AND lastName:smith AND status:active";
+
+	private final SearchExpressionParser parser = new SearchExpressionParser(1000);
+
+	@Benchmark
+	public Specification<UserEntity> flatRegexPerRequest() {
+		UserSpecificationsBuilder builder = new UserSpecificationsBuilder();
+		String operations = Joiner.on("|").join(SIMPLE_OPERATION_SET);
+
+		Pattern pattern = Pattern.compile("(\\w+?)(" + operations + ")(\\p{Punct}?)(.*)(\\p{Punct}?)");
+		for (String s : FLAT) {
+			Matcher matcher = pattern.matcher(s);
+			if (matcher.find()) {
+				builder.with(matcher.group(1), matcher.group(2), matcher.group(4), matcher.group(3), matcher.group(5));
+			}
+		}
+		return builder.build();
+	}
+
+	@Benchmark
+	public Specification<UserEntity> expressionUncached() {
+		return SearchExpressionParser.compile(EXPRESSION).toSpecification();
+	}
+
+	@Benchmark
+	public Specification<UserEntity> expressionCached() {
+		return parser.parse(EXPRESSION).toSpecification();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(SearchExpressionParserBenchmark.class.getSimpleName()).build()).run();
+	}
+}
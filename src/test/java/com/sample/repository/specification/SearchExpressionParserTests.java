@@ -0,0 +1,61 @@
+package com.sample.repository.specification;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.SearchOperation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchExpressionParserTests {
+
+	private final SearchExpressionParser parser = new SearchExpressionParser(100);
+
+	@Test
+	void andBindsTighterThanOr() {
+		SearchExpression expression = parser.parse("firstName:jo OR lastName:smith AND status:active");
+
+		SearchExpression.Or or = assertInstanceOf(SearchExpression.Or.class, expression);
+		assertEquals("firstName", criteria(or.left()).getKey());
+		assertInstanceOf(SearchExpression.And.class, or.right());
+	}
+
+	@Test
+	void parenthesesGroupAndWildcardsPickTheOperation() {
+		SearchExpression expression = parser.parse("(firstName:*jo* or lastName:smith*) and status:active");
+
+		SearchExpression.And and = assertInstanceOf(SearchExpression.And.class, expression);
+		SearchExpression.Or or = assertInstanceOf(SearchExpression.Or.class, and.left());
+		SpecSearchCriteria contains = criteria(or.left());
+		assertEquals(SearchOperation.CONTAINS, contains.getOperation());
+		assertEquals("jo", contains.getValue());
+		assertEquals(SearchOperation.STARTS_WITH, criteria(or.right()).getOperation());
+		assertEquals("smith", criteria(or.right()).getValue());
+		assertEquals(SearchOperation.EQUALITY, criteria(and.right()).getOperation());
+	}
+
+	@Test
+	void quotedValueKeepsSpacesAndParentheses() {
+		SpecSearchCriteria criteria = criteria(parser.parse("firstName:\"Mary (Ann)\""));
+
+		assertEquals("Mary (Ann)", criteria.getValue());
+	}
+
+	@Test
+	void equivalentExpressionsShareTheCachedTree() {
+		assertSame(parser.parse("firstName:jo  or lastName:smith"), parser.parse(" firstName:jo OR lastName:smith"));
+	}
+
+	@Test
+	void malformedExpressionsAreRejected() {
+		assertThrows(InvalidDataException.class, () -> parser.parse("(firstName:jo OR lastName:smith"));
+		assertThrows(InvalidDataException.class, () -> parser.parse("firstName:jo AND"));
+		assertThrows(InvalidDataException.class, () -> parser.parse("firstName:jo lastName:smith"));
+		assertThrows(InvalidDataException.class, () -> parser.parse("firstName=jo"));
+		assertThrows(InvalidDataException.class, () -> parser.parse("firstName:\"jo"));
+		assertThrows(InvalidDataException.class, () -> parser.parse("  "));
+	}
+
+	private static SpecSearchCriteria criteria(SearchExpression expression) {
+		return assertInstanceOf(SearchExpression.Criterion.class, expression).criteria();
+	}
+}
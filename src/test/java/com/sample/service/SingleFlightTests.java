@@ -0,0 +1,155 @@
+package com.sample.service;
+
+import com.sample.config.ReadRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+	private static final int CALLERS = 10;
+
+	private SimpleMeterRegistry meterRegistry;
+	private SingleFlight singleFlight;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		singleFlight = new SingleFlight(meterRegistry);
+		ReflectionTestUtils.setField(singleFlight, "endpoints", Set.of(SingleFlight.USER_DETAIL));
+		ReflectionTestUtils.setField(singleFlight, "maxKeys", 1);
+	}
+
+	@Test
+	void identicalCallsShareOneExecution() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger executions = new AtomicInteger();
+
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		try {
+			List<Future<String>> calls = new ArrayList<>();
+			for (int i = 0; i < CALLERS; i++) {
+				calls.add(executor.submit(() -> singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> {
+					executions.incrementAndGet();
+					await(release);
+					return "user 1";
+				})));
+			}
+			while (count("coalesced") < CALLERS - 1) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+
+			for (Future<String> call : calls) {
+				assertEquals("user 1", call.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(1, executions.get());
+		assertEquals(1, count("executed"));
+		assertEquals(CALLERS - 1, count("coalesced"));
+	}
+
+	@Test
+	void otherKeysBypassAFullTableAndDisabledEndpointsAlwaysRun() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> first = executor.submit(() -> singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> {
+				await(release);
+				return "user 1";
+			}));
+			while (count("executed") < 1) {
+				Thread.sleep(5);
+			}
+
+			assertEquals("user 2", singleFlight.execute(SingleFlight.USER_DETAIL, 2L, () -> "user 2"));
+			assertEquals(1, count("bypassed"));
+			assertEquals("list", singleFlight.execute(SingleFlight.USER_LIST, 1L, () -> "list"));
+
+			release.countDown();
+			assertEquals("user 1", first.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void pinnedCallsDoNotJoinReplicaReads() throws Exception {
+		ReflectionTestUtils.setField(singleFlight, "maxKeys", 2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> replica = executor.submit(() -> singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> {
+				await(release);
+				return "replica";
+			}));
+			while (count("executed") < 1) {
+				Thread.sleep(5);
+			}
+
+			assertEquals("primary", ReadRouting.onPrimary(() -> singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> "primary")));
+			assertEquals(0, count("coalesced"));
+
+			release.countDown();
+			assertEquals("replica", replica.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void joinedCallsFailWhenTheExecutionThrowsAnError() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> first = executor.submit(() -> singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> {
+				await(release);
+				throw new StackOverflowError();
+			}));
+			while (count("executed") < 1) {
+				Thread.sleep(5);
+			}
+			Future<String> second = executor.submit(() -> singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> "user 1"));
+			while (count("coalesced") < 1) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+
+			assertInstanceOf(StackOverflowError.class, assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS)).getCause());
+			assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals("user 1", singleFlight.execute(SingleFlight.USER_DETAIL, 1L, () -> "user 1"));
+	}
+
+	private double count(String outcome) {
+		return meterRegistry.find("user.single.flight.calls").tag("outcome", outcome).counters().stream()
+				.mapToDouble(counter -> counter.count()).sum();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
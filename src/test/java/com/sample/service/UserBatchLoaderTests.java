@@ -0,0 +1,40 @@
+package com.sample.service;
+
+import com.sample.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserBatchLoaderTests {
+
+	@Test
+	void anErrorOfTheQueryFailsEveryLookupOfTheBatch() throws Exception {
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findSummaryByIdIn(anyCollection())).thenThrow(new StackOverflowError());
+		UserBatchLoader loader = new UserBatchLoader(userRepository);
+		ReflectionTestUtils.setField(loader, "window", Duration.ofMillis(200));
+		ReflectionTestUtils.setField(loader, "maxBatchSize", 100);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> first = executor.submit(() -> loader.load(1));
+			Thread.sleep(50);
+			Future<?> second = executor.submit(() -> loader.load(2));
+
+			assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+			assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+			verify(userRepository, times(1)).findSummaryByIdIn(anyCollection());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
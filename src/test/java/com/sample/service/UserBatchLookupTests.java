@@ -0,0 +1,103 @@
+package com.sample.service;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.response.UserDetailResponse;
+import com.sample.repository.UserCopyRepository;
+import com.sample.repository.projection.VersionedUserSummary;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookups of many users by id, in one request and across concurrent requests. Needs the PostgreSQL database of the
+ * active profile.
+ */
+@SpringBootTest
+class UserBatchLookupTests {
+
+	private static final int USERS = 10;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserBatchLoader userBatchLoader;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private List<Long> ids;
+
+	@BeforeEach
+	void setUp() {
+		String run = "Lookup" + UUID.randomUUID().toString().substring(0, 8);
+		List<UserCreationRequest> users = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			users.add(newUser(run));
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+		ids = jdbcTemplate.queryForList("SELECT id FROM tbl_user WHERE last_name = ? ORDER BY id", Long.class, run);
+	}
+
+	@Test
+	void batchFollowsTheOrderOfTheIds() {
+		List<Long> requested = List.of(ids.get(3), Long.MAX_VALUE, ids.get(1), ids.get(3));
+
+		List<Long> found = userService.getUsersByIds(requested).stream().map(UserDetailResponse::getId).toList();
+		assertEquals(List.of(ids.get(3), ids.get(1)), found);
+	}
+
+	@Test
+	void concurrentLookupsShareOneQuery() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		Duration window = (Duration) ReflectionTestUtils.getField(userBatchLoader, "window");
+		ReflectionTestUtils.setField(userBatchLoader, "window", Duration.ofMillis(200));
+
+		ExecutorService executor = Executors.newFixedThreadPool(USERS + 1);
+		try {
+			long queries = statistics.getQueryExecutionCount();
+			List<Future<Optional<VersionedUserSummary>>> lookups = new ArrayList<>();
+			for (Long id : ids) {
+				lookups.add(executor.submit(() -> userBatchLoader.load(id)));
+			}
+			Future<Optional<VersionedUserSummary>> unknown = executor.submit(() -> userBatchLoader.load(Long.MAX_VALUE));
+
+			for (int i = 0; i < USERS; i++) {
+				assertEquals(ids.get(i), lookups.get(i).get().orElseThrow().getId());
+			}
+			assertTrue(unknown.get().isEmpty());
+			assertEquals(1, statistics.getQueryExecutionCount() - queries);
+		} finally {
+			executor.shutdown();
+			ReflectionTestUtils.setField(userBatchLoader, "window", window);
+		}
+	}
+}
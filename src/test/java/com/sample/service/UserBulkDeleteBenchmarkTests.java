@@ -0,0 +1,118 @@
+package com.sample.service;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.response.UserDeleteResponse;
+import com.sample.repository.UserCopyRepository;
+import com.sample.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the chunked set-based delete of users with addresses against deleteById, which loads each user with its
+ * addresses and deletes them row by row. The comparison runs with -Dbenchmark.rows=100000, by default only the bulk
+ * delete of a few users is checked. Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest
+class UserBulkDeleteBenchmarkTests {
+
+	private static final int USERS = 250;
+	private static final int ENTITY_USERS = 1000;
+	private static final int ADDRESSES_PER_USER = 2;
+	private static final int COPY_CHUNK = 10_000;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void bulkDeleteLoadsNoEntity() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		String run = copyUsers(USERS);
+		statistics.clear();
+		UserDeleteResponse response = userService.deleteUsersByCriteria("lastName:" + run);
+
+		assertEquals(USERS, response.getDeleted());
+		assertEquals((long) USERS * ADDRESSES_PER_USER, response.getDeletedAddresses());
+		assertEquals(0, statistics.getEntityLoadCount(), "no entity is loaded");
+		assertEquals(0, countUsers(run));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+	void bulkDeleteAgainstDeleteById() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		int users = Integer.getInteger("benchmark.rows");
+
+		String entityRun = copyUsers(ENTITY_USERS);
+		List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM tbl_user WHERE last_name = ?", Long.class, entityRun);
+		statistics.clear();
+		long start = System.nanoTime();
+		for (Long id : ids) {
+			transactionTemplate.executeWithoutResult(status -> userRepository.deleteById(id));
+		}
+		long entityMs = (System.nanoTime() - start) / 1_000_000;
+		long entityLoads = statistics.getEntityLoadCount();
+		assertEquals(0, countUsers(entityRun));
+
+		String bulkRun = copyUsers(users);
+		start = System.nanoTime();
+		UserDeleteResponse response = userService.deleteUsersByCriteria("lastName:" + bulkRun);
+		long bulkMs = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(users, response.getDeleted());
+		assertEquals(0, countUsers(bulkRun));
+
+		log.info("deleteById: {} users in {} ms ({} users/s, {} entities loaded); bulk delete: {} users and {} addresses in {} ms ({} users/s, {} chunks)",
+				ENTITY_USERS, entityMs, ENTITY_USERS * 1000L / Math.max(entityMs, 1), entityLoads,
+				users, response.getDeletedAddresses(), bulkMs, users * 1000L / Math.max(bulkMs, 1), response.getChunks());
+	}
+
+	private String copyUsers(int count) {
+		String run = "Delete" + UUID.randomUUID().toString().substring(0, 8);
+		for (int copied = 0; copied < count; copied += COPY_CHUNK) {
+			List<UserCreationRequest> users = new ArrayList<>();
+			for (int i = copied; i < Math.min(count, copied + COPY_CHUNK); i++) {
+				users.add(newUser(run, address("Le Loi", "Hanoi", 1), address("Tran Hung Dao", "Hanoi", 2)));
+			}
+			transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+		}
+		jdbcTemplate.execute("ANALYZE tbl_user");
+		jdbcTemplate.execute("ANALYZE tbl_address");
+		return run;
+	}
+
+	private long countUsers(String lastName) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM tbl_user WHERE last_name = ?", Long.class, lastName);
+	}
+}
@@ -0,0 +1,145 @@
+package com.sample.service;
+
+import com.sample.dto.response.UserDetailResponse;
+import com.sample.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * getUser reads through the user cache, mutations and notifications of other nodes evict it. Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserCacheTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserInvalidationBus invalidationBus;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void getUserHitsDatabaseOnceAndDeleteEvicts() {
+		int id = (int) userService.addUser(newUser());
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		double loads = loads();
+
+		assertEquals(id, userService.getUser(id).getId());
+		assertEquals(id, userService.getUser(id).getId());
+		assertEquals(1, statistics.getPrepareStatementCount(), "statements of two reads");
+		assertEquals(loads + 1, loads(), "cache loads");
+		assertEquals(0, statistics.getEntityLoadCount(), "entities loaded");
+
+		userService.deleteUser(id);
+		assertThrows(ResourceNotFoundException.class, () -> userService.getUser(id));
+
+		assertNotNull(meterRegistry.find("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter());
+		assertNotNull(meterRegistry.find("cache.load.duration").tag("cache", "users").timeGauge());
+	}
+
+	@Test
+	void notificationFromAnotherNodeEvicts() {
+		int id = (int) userService.addUser(newUser());
+		userService.getUser(id);
+		awaitListening();
+
+		jdbcTemplate.update("UPDATE tbl_user SET first_name = 'Renamed' WHERE id = ?", id);
+		assertNotEquals("Renamed", userService.getUser(id).getFirstName(), "served from cache");
+
+		jdbcTemplate.queryForList("SELECT pg_notify('user_invalidation', ?)", "other-node:1," + id);
+		await(() -> "Renamed".equals(userService.getUser(id).getFirstName()));
+	}
+
+	@Test
+	void invalidIdsOfANotificationAreSkipped() {
+		int id = (int) userService.addUser(newUser());
+		userService.getUser(id);
+		awaitListening();
+
+		jdbcTemplate.update("UPDATE tbl_user SET first_name = 'Renamed' WHERE id = ?", id);
+		jdbcTemplate.queryForList("SELECT pg_notify('user_invalidation', ?)", "other-node:x");
+		jdbcTemplate.queryForList("SELECT pg_notify('user_invalidation', ?)", "other-node:99999999999999999999," + id);
+		await(() -> "Renamed".equals(userService.getUser(id).getFirstName()));
+		assertTrue(invalidationBus.isListening());
+	}
+
+	@Test
+	void listenerReconnectFlushesCache() {
+		int id = (int) userService.addUser(newUser());
+		userService.getUser(id);
+		awaitListening();
+
+		jdbcTemplate.update("UPDATE tbl_user SET first_name = 'Renamed' WHERE id = ?", id);
+		jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query LIKE 'LISTEN user_invalidation%'");
+		await(() -> "Renamed".equals(userService.getUser(id).getFirstName()));
+	}
+
+	@Test
+	void anErrorOfTheLoaderIsNotLeftPending() {
+		long id = Long.MAX_VALUE - System.nanoTime() % 1_000_000;
+		UserDetailResponse user = UserDetailResponse.builder().id(id).build();
+
+		assertThrows(StackOverflowError.class, () -> userCache.get(id, missing -> {
+			throw new StackOverflowError();
+		}));
+		assertThrows(StackOverflowError.class, () -> userCache.getAll(Set.of(id + 1), missing -> {
+			throw new StackOverflowError();
+		}));
+
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			assertEquals(user, userCache.get(id, missing -> user));
+			assertEquals(Map.of(id + 1, user), userCache.getAll(Set.of(id + 1), missing -> Map.of(id + 1, user)));
+		});
+	}
+
+	private double loads() {
+		return meterRegistry.get("cache.load").tag("cache", "users").tag("result", "success").functionCounter().count();
+	}
+
+	private void awaitListening() {
+		await(invalidationBus::isListening);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, "timed out");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.sample.service;
+
+import com.sample.exception.InvalidDataException;
+import com.sample.util.ExportFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Export streams the users matching the search expressions. Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserExportTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserExportService userExportService;
+
+	@Test
+	void exportsMatchingUsersOrderedById() throws IOException {
+		String lastName = "Export" + UUID.randomUUID().toString().substring(0, 8);
+		long first = userService.addUser(newUser(lastName));
+		long second = userService.addUser(newUser(lastName));
+
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		assertEquals(2, userExportService.export(csv, ExportFormat.csv, "lastName:" + lastName));
+		List<String> lines = csv.toString(UTF_8).lines().toList();
+		assertEquals("id,firstName,lastName,email,phone", lines.get(0));
+		assertTrue(lines.get(1).startsWith(first + ","));
+		assertTrue(lines.get(2).startsWith(second + ","));
+
+		ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+		assertEquals(2, userExportService.export(ndjson, ExportFormat.ndjson, "lastName:" + lastName));
+		assertTrue(ndjson.toString(UTF_8).startsWith("{\"id\":" + first + ","));
+		assertTrue(ndjson.toString(UTF_8).endsWith("}\n"));
+	}
+
+	@Test
+	void invalidSearchIsRejectedBeforeWriting() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertThrows(InvalidDataException.class, () -> userExportService.export(out, ExportFormat.ndjson, "password:x"));
+		assertEquals(0, out.size());
+	}
+}
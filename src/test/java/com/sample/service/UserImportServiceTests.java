@@ -0,0 +1,52 @@
+package com.sample.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sample.dto.response.UserImportResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+
+import static com.sample.TestUsers.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NDJSON import reports totals and the first errors. Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserImportServiceTests {
+
+	@Autowired
+	private UserImportService userImportService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void aNullRecordIsRejectedAndTheOthersImported() throws Exception {
+		String ndjson = objectMapper.writeValueAsString(newUser()) + "\nnull\n" + objectMapper.writeValueAsString(newUser()) + "\n";
+
+		UserImportResponse report = userImportService.importNdjson(new ByteArrayInputStream(ndjson.getBytes(UTF_8)));
+
+		assertEquals(3, report.getTotalRecords());
+		assertEquals(2, report.getImported());
+		assertEquals(1, report.getRejected());
+		assertEquals(1, report.getErrors().size());
+		assertEquals(2, report.getErrors().get(0).getFirstRecord());
+		assertEquals(2, report.getErrors().get(0).getLastRecord());
+		assertFalse(report.isErrorsTruncated());
+	}
+
+	@Test
+	void onlyTheFirstErrorsAreReported() throws Exception {
+		String ndjson = "null\n".repeat(150);
+
+		UserImportResponse report = userImportService.importNdjson(new ByteArrayInputStream(ndjson.getBytes(UTF_8)));
+
+		assertEquals(150, report.getRejected());
+		assertEquals(100, report.getErrors().size());
+		assertTrue(report.isErrorsTruncated());
+	}
+}
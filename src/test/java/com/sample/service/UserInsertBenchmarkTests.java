@@ -0,0 +1,74 @@
+package com.sample.service;
+
+import com.sample.dto.request.UserCreationRequest;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures JDBC round trips and insert throughput of {@link UserService#addUser}, the throughput with
+ * -Dbenchmark.rows=1000. Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest
+class UserInsertBenchmarkTests {
+
+	private static final int ADDRESSES_PER_USER = 5;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		// warm up the connection pool and the sequence allocations
+		userService.addUser(userWithAddresses());
+		statistics.clear();
+	}
+
+	@Test
+	void addUserDoesNotIssueOneStatementPerAddress() {
+		userService.addUser(userWithAddresses());
+
+		long statements = statistics.getPrepareStatementCount();
+		log.info("addUser with {} addresses: {} statements", ADDRESSES_PER_USER, statements);
+		// one batched insert per table, plus at most one sequence call per table
+		assertTrue(statements <= 4, "expected batched inserts but got " + statements + " statements");
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+	void insertThroughput() {
+		int users = Integer.getInteger("benchmark.rows");
+		long start = System.nanoTime();
+		for (int i = 0; i < users; i++) {
+			userService.addUser(userWithAddresses());
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		log.info("Inserted {} users with {} addresses each in {} ms ({} users/s, {} statements)",
+				users, ADDRESSES_PER_USER, elapsedMs, users * 1000L / Math.max(elapsedMs, 1), statistics.getPrepareStatementCount());
+	}
+
+	private static UserCreationRequest userWithAddresses() {
+		UserCreationRequest.Address[] addresses = new UserCreationRequest.Address[ADDRESSES_PER_USER];
+		for (int i = 0; i < ADDRESSES_PER_USER; i++) {
+			addresses[i] = address("Street " + i, "City", i);
+		}
+		return newUser(null, addresses);
+	}
+}
@@ -0,0 +1,60 @@
+package com.sample.service;
+
+import com.sample.dto.response.UserDetailResponse;
+import com.sample.dto.response.UserListResponse;
+import com.sample.exception.InvalidDataException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Keyset pages sorted by a timestamp, sort fields limited to searchable attributes. Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserKeysetPagingTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void pagesRowsApartByMicroseconds() {
+		String run = "Keyset" + UUID.randomUUID().toString().substring(0, 8);
+		List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			long id = userService.addUser(newUser(run));
+			// same millisecond, microseconds in the reverse order of the ids
+			jdbcTemplate.update("UPDATE tbl_user SET updated_at = timestamp '2024-01-01 00:00:00.123' + (? * interval '1 microsecond') WHERE id = ?", 4 - i, id);
+			ids.add(0, id);
+		}
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserListResponse page = userService.scrollUsersBySpecifications(cursor, PageRequest.of(0, 1, Sort.by("updatedAt")), "lastName:" + run);
+			page.getUsers().stream().map(UserDetailResponse::getId).forEach(seen::add);
+			cursor = page.getNextCursor();
+		} while (cursor != null && seen.size() <= ids.size());
+
+		assertEquals(ids, seen);
+	}
+
+	@Test
+	void refusesToSortByPassword() {
+		// the sort key of the last row would be written into the cursor
+		assertThrows(InvalidDataException.class, () -> userService.scrollUsers(null, 10, "password:asc"));
+	}
+}
@@ -0,0 +1,106 @@
+package com.sample.service;
+
+import com.sample.dto.response.UserListResponse;
+import com.sample.util.TotalMode;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every list/search page must cost one page query plus one count query, criteria and specification searches a single
+ * statement carrying the total (or no total at all), and never load entities or addresses.
+ * Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserListStatementCountTests {
+
+	private static final int PAGE_SIZE = 5;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < PAGE_SIZE * 3; i++) {
+			userService.addUser(newUser(null, address(null, "City", 1)));
+		}
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void getUsersWithPageable() {
+		assertFalse(userService.getUsers(PageRequest.of(1, PAGE_SIZE)).isEmpty());
+		assertStatements(2);
+	}
+
+	@Test
+	void getUsersSortedAndPaged() {
+		assertPage(userService.getUsers(2, PAGE_SIZE, "firstName:asc"));
+		assertStatements(2);
+	}
+
+	@Test
+	void getUsersByCriteria() {
+		UserListResponse response = userService.getUsersByCriteria(PageRequest.of(1, PAGE_SIZE), TotalMode.exact, "firstName:First");
+		assertPage(response);
+		assertTrue(response.getTotalElements() >= PAGE_SIZE * 3);
+		assertStatements(1);
+	}
+
+	@Test
+	void getUsersBySpecifications() {
+		assertPage(userService.getUsersBySpecifications(PageRequest.of(1, PAGE_SIZE), "firstName~First%"));
+		assertStatements(1);
+	}
+
+	@Test
+	void getUsersByCustomizeQuery() {
+		assertPage(userService.getUsersByCustomizeQuery(null, null, null, 1, PAGE_SIZE, TotalMode.exact));
+		assertStatements(2);
+	}
+
+	@Test
+	void getUsersByCriteriaWithoutTotal() {
+		UserListResponse response = userService.getUsersByCriteria(PageRequest.of(1, PAGE_SIZE), TotalMode.none, "firstName:First");
+		assertPage(response);
+		assertTrue(response.getHasNext());
+		assertNull(response.getTotalElements());
+		assertStatements(1);
+	}
+
+	@Test
+	void getUsersByCustomizeQueryWithEstimate() {
+		UserListResponse response = userService.getUsersByCustomizeQuery(null, null, 2, 1, PAGE_SIZE, TotalMode.estimate);
+		assertPage(response);
+		assertEquals(TotalMode.estimate, response.getTotalMode());
+		assertTrue(response.getTotalElements() >= PAGE_SIZE * 2);
+		assertStatements(1);
+	}
+
+	private void assertPage(UserListResponse response) {
+		assertEquals(PAGE_SIZE, response.getUsers().size());
+	}
+
+	private void assertStatements(long expected) {
+		assertEquals(expected, statistics.getPrepareStatementCount(), "statements per page");
+		assertEquals(0, statistics.getEntityLoadCount(), "entities loaded");
+		assertEquals(0, statistics.getCollectionLoadCount(), "collections loaded");
+	}
+}
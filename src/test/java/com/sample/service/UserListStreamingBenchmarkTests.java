@@ -0,0 +1,126 @@
+package com.sample.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.repository.UserCopyRepository;
+import com.sample.util.TotalMode;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares allocated bytes per request and throughput of a criteria search page written from the JDBC rows against
+ * the UserListResponse serialized by Jackson. The comparison runs with -Dbenchmark.rows=1000 rows per page, by default
+ * only the JSON of a small page is checked to be the same. Needs the PostgreSQL database of the active profile.
+ */
+@Slf4j
+@SpringBootTest
+class UserListStreamingBenchmarkTests {
+
+	private static final int PAGE_SIZE = 10;
+	private static final int WARM_UP = 20;
+	private static final int ITERATIONS = 100;
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private String run;
+
+	@Test
+	void streamedPageIsTheJsonOfTheResponseObjects() throws IOException {
+		copyUsers(3 * PAGE_SIZE);
+		Pageable page = PageRequest.of(1, PAGE_SIZE, Sort.by("id"));
+
+		JsonNode expected = objectMapper.readTree(write(objects(page)));
+		assertEquals(PAGE_SIZE, expected.get("users").size());
+		assertEquals(expected, objectMapper.readTree(write(streamed(page))));
+	}
+
+	@Test
+	@EnabledIfSystemProperty(named = "benchmark.rows", matches = "\\d+")
+	void streamedPageAgainstResponseObjects() throws IOException {
+		int pageSize = Integer.getInteger("benchmark.rows");
+		copyUsers(3 * pageSize);
+		Pageable page = PageRequest.of(1, pageSize, Sort.by("id"));
+		Request objects = objects(page);
+		Request streamed = streamed(page);
+
+		Result objectResult = measure(objects);
+		Result streamedResult = measure(streamed);
+		log.info("{}-row page: response objects {} KB allocated per request, {} requests/s; streamed {} KB allocated per request, {} requests/s",
+				pageSize, objectResult.allocated() / 1024, objectResult.throughput(), streamedResult.allocated() / 1024, streamedResult.throughput());
+	}
+
+	private void copyUsers(int count) {
+		run = "Stream" + UUID.randomUUID().toString().substring(0, 8);
+
+		List<UserCreationRequest> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(newUser(run));
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+	}
+
+	private Request objects(Pageable page) {
+		return out -> objectMapper.writeValue(out, userService.getUsersByCriteria(page, TotalMode.exact, "lastName:" + run));
+	}
+
+	private Request streamed(Pageable page) {
+		return out -> userService.writeUsersByCriteria(out, page, "lastName:" + run);
+	}
+
+	private static byte[] write(Request request) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		request.write(out);
+		return out.toByteArray();
+	}
+
+	private static Result measure(Request request) throws IOException {
+		for (int i = 0; i < WARM_UP; i++) {
+			request.write(OutputStream.nullOutputStream());
+		}
+		long allocated = THREADS.getCurrentThreadAllocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			request.write(OutputStream.nullOutputStream());
+		}
+		long nanos = System.nanoTime() - start;
+		return new Result((THREADS.getCurrentThreadAllocatedBytes() - allocated) / ITERATIONS, ITERATIONS * 1_000_000_000L / nanos);
+	}
+
+	private interface Request {
+		void write(OutputStream out) throws IOException;
+	}
+
+	private record Result(long allocated, long throughput) {
+	}
+}
@@ -0,0 +1,104 @@
+package com.sample.service;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.response.UserStatusChangeResponse;
+import com.sample.exception.ResourceNotFoundException;
+import com.sample.repository.UserCopyRepository;
+import com.sample.repository.UserRepository;
+import com.sample.util.UserStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Set-based status changes in chunks of 10 users. Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserStatusChangeTests {
+
+	private static final int USERS = 25;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private String run;
+	private int chunkSize;
+
+	@BeforeEach
+	void setUp() {
+		UserService target = AopTestUtils.getTargetObject(userService);
+		chunkSize = (int) ReflectionTestUtils.getField(target, "bulkChunkSize");
+		ReflectionTestUtils.setField(target, "bulkChunkSize", 10);
+
+		run = "Status" + UUID.randomUUID().toString().substring(0, 8);
+		List<UserCreationRequest> users = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			users.add(newUser(run));
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+	}
+
+	@AfterEach
+	void tearDown() {
+		UserService target = AopTestUtils.getTargetObject(userService);
+		ReflectionTestUtils.setField(target, "bulkChunkSize", chunkSize);
+	}
+
+	@Test
+	void filterIsChangedInChunksOnce() {
+		UserStatusChangeResponse first = userService.changeStatusByCriteria(UserStatus.inactive, "lastName:" + run);
+		assertEquals(USERS, first.getMatched());
+		assertEquals(USERS, first.getChanged());
+		assertEquals(3, first.getChunks());
+		assertEquals(USERS, countUsers(UserStatus.inactive));
+
+		UserStatusChangeResponse again = userService.changeStatusByCriteria(UserStatus.inactive, "lastName:" + run);
+		assertEquals(USERS, again.getMatched());
+		assertEquals(0, again.getChanged(), "rows already in the status are not written");
+	}
+
+	@Test
+	void changeByIdsEvictsTheSecondLevelCache() {
+		List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM tbl_user WHERE last_name = ? ORDER BY id", Long.class, run);
+		long id = ids.get(0);
+		assertNotEquals(UserStatus.active, userRepository.findById(id).orElseThrow().getStatus());
+
+		UserStatusChangeResponse response = userService.changeStatus(UserStatus.active, ids.subList(0, 12));
+		assertEquals(12, response.getChanged());
+		assertEquals(2, response.getChunks());
+		assertEquals(UserStatus.active, userRepository.findById(id).orElseThrow().getStatus());
+
+		assertEquals(0, userService.changeStatus(id, UserStatus.active.name()));
+		assertThrows(ResourceNotFoundException.class, () -> userService.changeStatus(Long.MAX_VALUE, UserStatus.active.name()));
+	}
+
+	private long countUsers(UserStatus status) {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM tbl_user WHERE last_name = ? AND status::text = ?",
+				Long.class, run, status.name());
+	}
+}
@@ -0,0 +1,101 @@
+package com.sample.service;
+
+import com.sample.dto.request.UserCreationRequest;
+import com.sample.dto.response.UserDetailResponse;
+import com.sample.dto.response.UserListResponse;
+import com.sample.exception.InvalidDataException;
+import com.sample.repository.UserCopyRepository;
+import com.sample.util.TotalMode;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Full-text search over the search vector maintained by addUser and the COPY import, and pattern search on names.
+ * Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserTextSearchTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserCopyRepository userCopyRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void nameMatchRanksAboveAddressMatch() {
+		String word = word();
+		long byCity = userService.addUser(user("Someone", "Else", word));
+		long byName = userService.addUser(user(word, "Nguyen", "Hanoi"));
+
+		List<Long> ids = ids(userService.searchUsersByText(word, null, 20));
+		assertEquals(List.of(byName, byCity), ids);
+
+		assertEquals(List.of(byName), ids(userService.searchUsersByText(word.substring(0, 6) + " nguy", null, 20)), "every word as a prefix");
+	}
+
+	@Test
+	void pagesFollowTheCursorWithoutGapsOrDuplicates() {
+		String word = word();
+		List<UserCreationRequest> users = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			users.add(user(i % 2 == 0 ? word : "Other", "Imported", word));
+		}
+		transactionTemplate.executeWithoutResult(status -> userCopyRepository.copyUsers(users));
+
+		List<Long> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			UserListResponse page = userService.searchUsersByText(word, cursor, 3);
+			seen.addAll(ids(page));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		assertEquals(7, seen.size());
+		assertEquals(7, Set.copyOf(seen).size());
+	}
+
+	@Test
+	void shortContainsMatchesWithoutAnIndex() {
+		String word = word();
+		long id = userService.addUser(user("Qzara", word, "Hue"));
+		userService.addUser(user("Other", word, "Hue"));
+		PageRequest page = PageRequest.of(0, 10);
+
+		assertEquals(List.of(id), ids(userService.getUsersBySpecifications(page, "lastName:" + word, "firstName:*QZ*")));
+		assertEquals(List.of(id), ids(userService.getUsersByCriteria(page, TotalMode.exact, "lastName:" + word, "firstName:qz")));
+	}
+
+	@Test
+	void inputWithoutWordsIsRejected() {
+		assertThrows(InvalidDataException.class, () -> userService.searchUsersByText(" '&|! ", null, 20));
+	}
+
+	private static List<Long> ids(UserListResponse response) {
+		return response.getUsers().stream().map(UserDetailResponse::getId).toList();
+	}
+
+	private static UserCreationRequest user(String firstName, String lastName, String city) {
+		UserCreationRequest user = newUser(lastName, address("Le Loi", city, 1));
+		user.setFirstName(firstName);
+		return user;
+	}
+
+	private static String word() {
+		return "w" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+	}
+}
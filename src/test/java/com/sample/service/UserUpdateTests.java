@@ -0,0 +1,118 @@
+package com.sample.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.sample.dto.request.UserUpdateRequest;
+import com.sample.dto.response.UserBatchUpdateResponse;
+import com.sample.dto.response.UserBatchUpdateResponse.Item;
+import com.sample.dto.response.UserBatchUpdateResponse.Result;
+import com.sample.dto.response.UserDetailResponse;
+import com.sample.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static com.sample.TestUsers.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Partial updates of a user with and without an expected version. Needs the PostgreSQL database of the active profile.
+ */
+@SpringBootTest
+class UserUpdateTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserBatchService userBatchService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void updateListsOnlyTheGivenColumns() {
+		long id = userService.addUser(newUser());
+		long version = userService.getUser((int) id).getVersion();
+
+		Logger logger = (Logger) LoggerFactory.getLogger(JdbcTemplate.class);
+		ListAppender<ILoggingEvent> statements = new ListAppender<>();
+		Level level = logger.getLevel();
+		statements.start();
+		logger.addAppender(statements);
+		logger.setLevel(Level.DEBUG);
+		try {
+			userService.updateUser(update(id, version, "Renamed", null));
+		} finally {
+			logger.setLevel(level);
+			logger.detachAppender(statements);
+		}
+
+		List<String> updates = statements.list.stream().map(ILoggingEvent::getFormattedMessage)
+				.filter(message -> message.contains("UPDATE tbl_user SET")).toList();
+		assertEquals(1, updates.size(), updates.toString());
+		assertTrue(updates.get(0).contains("SET first_name = ?, updated_at = now(), version = version + 1 WHERE id = ? AND version = ?"), updates.get(0));
+
+		UserDetailResponse user = userService.getUser((int) id);
+		assertEquals("Renamed", user.getFirstName());
+		assertEquals(version + 1, user.getVersion());
+	}
+
+	@Test
+	void staleVersionIsAConflictAndUntouchedColumnsAreKept() {
+		long id = userService.addUser(newUser());
+		long version = userService.getUser((int) id).getVersion();
+
+		userService.updateUser(update(id, version, "First", null));
+		assertThrows(OptimisticLockingFailureException.class, () -> userService.updateUser(update(id, version, null, "Last")));
+
+		userService.updateUser(update(id, null, null, "Last"));
+		assertEquals(List.of("First", "Last"), jdbcTemplate.queryForObject(
+				"SELECT first_name, last_name FROM tbl_user WHERE id = ?", (rs, rowNum) -> List.of(rs.getString(1), rs.getString(2)), id));
+
+		assertThrows(ResourceNotFoundException.class, () -> userService.updateUser(update(Long.MAX_VALUE, null, "First", null)));
+	}
+
+	@Test
+	void failingChunkIsRejectedAndTheOthersApply() {
+		List<Long> ids = List.of(userService.addUser(newUser()), userService.addUser(newUser()), userService.addUser(newUser()));
+
+		UserBatchService target = AopTestUtils.getTargetObject(userBatchService);
+		int chunkSize = (int) ReflectionTestUtils.getField(target, "chunkSize");
+		ReflectionTestUtils.setField(target, "chunkSize", 1);
+		UserBatchUpdateResponse response;
+		try {
+			// longer than the column
+			response = userBatchService.updateUsers(List.of(update(ids.get(0), null, "Renamed", null),
+					update(ids.get(1), null, "x".repeat(300), null), update(ids.get(2), null, "Renamed", null)));
+		} finally {
+			ReflectionTestUtils.setField(target, "chunkSize", chunkSize);
+		}
+
+		assertEquals(List.of(Result.updated, Result.rejected, Result.updated), response.getItems().stream().map(Item::getResult).toList());
+		assertEquals(ids.get(1), response.getItems().get(1).getId());
+		assertNotNull(response.getItems().get(1).getError());
+		assertEquals(2, response.getUpdated());
+		assertEquals(1, response.getRejected());
+		assertEquals(List.of("Renamed", "Renamed"), jdbcTemplate.queryForList(
+				"SELECT first_name FROM tbl_user WHERE id IN (?, ?)", String.class, ids.get(0), ids.get(2)));
+	}
+
+	private static UserUpdateRequest update(long id, Long version, String firstName, String lastName) {
+		UserUpdateRequest request = new UserUpdateRequest();
+		request.setId(id);
+		request.setVersion(version);
+		request.setFirstName(firstName);
+		request.setLastName(lastName);
+		return request;
+	}
+}